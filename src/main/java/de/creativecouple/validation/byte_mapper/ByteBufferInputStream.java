@@ -0,0 +1,86 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+class ByteBufferInputStream extends InputStream {
+
+    private final ByteBuffer buffer;
+
+    ByteBufferInputStream(ByteBuffer buffer) {
+        this.buffer = buffer.duplicate();
+    }
+
+    @Override
+    public int read() {
+        return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) {
+        if (length == 0) {
+            return 0;
+        }
+        if (!buffer.hasRemaining()) {
+            return -1;
+        }
+        length = Math.min(length, buffer.remaining());
+        buffer.get(bytes, offset, length);
+        return length;
+    }
+
+    @Override
+    public long skip(long n) {
+        int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+        buffer.position(buffer.position() + skipped);
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return buffer.remaining();
+    }
+
+    @Override
+    public boolean markSupported() {
+        return true;
+    }
+
+    @Override
+    public void mark(int readLimit) {
+        buffer.mark();
+    }
+
+    @Override
+    public void reset() {
+        buffer.reset();
+    }
+
+    boolean hasArray() {
+        return buffer.hasArray();
+    }
+
+    byte[] array() {
+        return buffer.array();
+    }
+
+    int arrayPosition() {
+        return buffer.arrayOffset() + buffer.position();
+    }
+
+    /**
+     * a read-only view on up to {@code length} upcoming bytes, without consuming them
+     */
+    ByteBuffer peek(int length) {
+        return buffer.slice(buffer.position(), Math.min(length, buffer.remaining())).asReadOnlyBuffer();
+    }
+
+    /**
+     * a read-only view on the next {@code length} bytes, sharing content with the source
+     */
+    ByteBuffer slice(int length) {
+        ByteBuffer slice = buffer.slice(buffer.position(), length).asReadOnlyBuffer();
+        buffer.position(buffer.position() + length);
+        return slice;
+    }
+}
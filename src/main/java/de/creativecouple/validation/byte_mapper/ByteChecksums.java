@@ -0,0 +1,26 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+import java.util.zip.Checksum;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ByteChecksums {
+
+    static Checksum create(String algorithm) {
+        return switch (algorithm.toLowerCase()) {
+        case "crc32" -> new CRC32();
+        case "crc32c" -> new CRC32C();
+        case "adler32" -> new Adler32();
+        default -> throw new IllegalArgumentException("unknown checksum algorithm '" + algorithm + "'");
+        };
+    }
+
+    static long mask(long checksum, int length) {
+        return length >= 8 ? checksum : checksum & ((1L << (length << 3)) - 1);
+    }
+}
@@ -0,0 +1,15 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The unsigned wire code of an enum constant. Constants without it are encoded by their ordinal.
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ ElementType.FIELD })
+public @interface ByteCode {
+    int value();
+}
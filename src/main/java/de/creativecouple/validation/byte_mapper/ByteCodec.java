@@ -0,0 +1,116 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.io.InputStream;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Parameter;
+import java.lang.reflect.Type;
+import java.nio.channels.ReadableByteChannel;
+
+import static de.creativecouple.validation.byte_mapper.BytePattern.ANONYMOUS;
+import static de.creativecouple.validation.byte_mapper.BytePattern.PLACEHOLDER;
+
+record ByteCodec(Class<?> type, BytePattern pattern, ByteCodec[] variants, Constructor<?> constructor,
+        Parameter[] parameters, int[] parameterIndices, Method[] accessors) {
+
+    static ByteCodec of(Class<?> type, ByteCodec[] variants) {
+        if (type.getAnnotation(ByteFormat.class) == null && variants != null) {
+            return new ByteCodec(type, null, variants, null, null, null, null);
+        }
+        BytePattern pattern = BytePatterns.compile(type);
+        Constructor<?>[] constructors = type.getConstructors();
+        Constructor<?> constructor = constructors.length > 0 ? constructors[0] : null;
+        Parameter[] parameters = constructor != null ? constructor.getParameters() : new Parameter[0];
+        int[] parameterIndices = new int[pattern.length];
+        Method[] accessors = new Method[pattern.length];
+        for (int event = 0; event < pattern.length; event++) {
+            parameterIndices[event] = -1;
+            if (isChecksum(pattern, event)) {
+                ByteChecksums.create(pattern.checksumAlgorithm(event));
+                if (pattern.isVariable(event)) {
+                    throw new IllegalArgumentException(
+                            "checksum placeholder must have a constant size at " + pattern.source(event));
+                }
+            }
+            if (pattern.counted[event] && !isParameter(pattern, event)) {
+                throw new IllegalArgumentException(
+                        "element count requires a named list parameter at " + pattern.source(event));
+            }
+            if (isParameter(pattern, event)) {
+                String name = pattern.name(event);
+                parameterIndices[event] = indexOf(parameters, name);
+                accessors[event] = accessor(type, name);
+                if (parameterIndices[event] >= 0 && isPayload(parameters[parameterIndices[event]].getType())
+                        && event != pattern.length - 1) {
+                    throw new IllegalArgumentException(
+                            "stream component must be the last placeholder of the format at " + pattern.source(event));
+                }
+                if (parameterIndices[event] >= 0 && pattern.counted[event]) {
+                    checkCountedElements(parameters[parameterIndices[event]], pattern, event);
+                }
+                if (parameterIndices[event] >= 0 && parameters[parameterIndices[event]].getType().isEnum()
+                        && !pattern.isVariable(event)) {
+                    checkEnumCodes(parameters[parameterIndices[event]].getType(), pattern, event);
+                }
+            }
+        }
+        return new ByteCodec(type, pattern, variants, constructor, parameters, parameterIndices, accessors);
+    }
+
+    static boolean isParameter(BytePattern pattern, int event) {
+        return pattern.opcodes[event] == PLACEHOLDER && pattern.names[event] != ANONYMOUS
+                && !pattern.isSizeVariable(pattern.names[event]) && !pattern.isChecksum(pattern.names[event]);
+    }
+
+    static boolean isPayload(Class<?> type) {
+        return type == InputStream.class || type == ReadableByteChannel.class;
+    }
+
+    static boolean isChecksum(BytePattern pattern, int event) {
+        return pattern.checksumStarts != null && pattern.checksumStarts[event] >= 0;
+    }
+
+    /**
+     * elements of a counted list must tell their own length, as numbers, records and varints do
+     */
+    private static void checkCountedElements(Parameter parameter, BytePattern pattern, int event) {
+        Type elementType = ByteValidator.listElementType(parameter.getParameterizedType());
+        if (elementType == null) {
+            throw new IllegalArgumentException("element count requires a list parameter at " + pattern.source(event));
+        }
+        if (!BytePattern.isVarint(pattern.byteOrders[event]) && !(elementType instanceof Class<?> clazz
+                && (ByteValidator.naturalSize(clazz) > 0 || ByteValidator.isByteType(clazz)))) {
+            throw new IllegalArgumentException(
+                    "element count not supported for elements of " + elementType + " at " + pattern.source(event));
+        }
+    }
+
+    private static void checkEnumCodes(Class<?> enumType, BytePattern pattern, int event) {
+        int codeSize = ByteEnumCodes.of(enumType).codeSize();
+        if (codeSize > pattern.sizes[event]) {
+            throw new IllegalArgumentException("codes of " + enumType + " need " + codeSize + " bytes, but placeholder "
+                    + pattern.source(event) + " has only " + pattern.sizes[event]);
+        }
+    }
+
+    private static int indexOf(Parameter[] parameters, String name) {
+        for (int i = 0; i < parameters.length; i++) {
+            if (name.equals(parameters[i].getName())) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static Method accessor(Class<?> type, String name) {
+        try {
+            return type.getMethod(name);
+        } catch (NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    boolean isVariantBase() {
+        return variants != null;
+    }
+}
@@ -0,0 +1,165 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.lang.ref.WeakReference;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+final class ByteCodecs {
+
+    private final ClassValue<Entry> cache = new ClassValue<>() {
+        @Override
+        protected Entry computeValue(Class<?> type) {
+            return new Entry(create(type));
+        }
+    };
+
+    private final int maxSize;
+    private final WeakReference<Entry>[] clock;
+    private int clockHand;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    ByteCodecs(int maxSize) {
+        if (maxSize < 0) {
+            throw new IllegalArgumentException("negative cache size " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.clock = maxSize == 0 ? null : (WeakReference<Entry>[]) new WeakReference<?>[maxSize];
+    }
+
+    ByteCodec get(Class<?> type) {
+        Entry entry = cache.get(type);
+        if (clock != null && !entry.referenced) {
+            if (entry.registered) {
+                entry.referenced = true;
+            } else {
+                register(entry);
+            }
+        }
+        return entry.codec;
+    }
+
+    synchronized int size() {
+        return clock == null ? -1 : size;
+    }
+
+    private synchronized void register(Entry entry) {
+        if (entry.registered) {
+            return;
+        }
+        if (size == maxSize) {
+            evictOne();
+        }
+        while (clock[clockHand] != null) {
+            clockHand = (clockHand + 1) % maxSize;
+        }
+        clock[clockHand] = new WeakReference<>(entry);
+        clockHand = (clockHand + 1) % maxSize;
+        size++;
+        entry.registered = true;
+    }
+
+    private void evictOne() {
+        for (Entry entry; (entry = clock[clockHand].get()) != null; clockHand = (clockHand + 1) % maxSize) {
+            if (!entry.referenced) {
+                cache.remove(entry.codec.type());
+                break;
+            }
+            entry.referenced = false;
+        }
+        clock[clockHand] = null;
+        size--;
+    }
+
+    private ByteCodec create(Class<?> type) {
+        ByteVariants byteVariants = type.getAnnotation(ByteVariants.class);
+        if (byteVariants == null) {
+            return ByteCodec.of(type, null);
+        }
+        Class<?>[] variantTypes = byteVariants.value();
+        ByteCodec[] variants = new ByteCodec[variantTypes.length];
+        for (int i = 0; i < variantTypes.length; i++) {
+            variants[i] = get(variantTypes[i]);
+        }
+        return ByteCodec.of(type, variants);
+    }
+
+    void precompile(Collection<Class<?>> types) {
+        List<RuntimeException> errors = referencedTypes(types).parallelStream().map(this::tryPrecompile)
+                .filter(Objects::nonNull).toList();
+        if (!errors.isEmpty()) {
+            IllegalArgumentException exception = new IllegalArgumentException(
+                    errors.size() + " byte pattern error(s):\n"
+                            + errors.stream().map(RuntimeException::getMessage).collect(Collectors.joining("\n\n")));
+            errors.forEach(exception::addSuppressed);
+            throw exception;
+        }
+    }
+
+    private RuntimeException tryPrecompile(Class<?> type) {
+        try {
+            ByteCodec codec = get(type);
+            if (codec.pattern() != null) {
+                if (codec.constructor() == null) {
+                    throw new IllegalArgumentException("no public constructor on type " + type);
+                }
+                BytePattern pattern = codec.pattern();
+                for (int event = 0; event < pattern.length; event++) {
+                    if (ByteCodec.isParameter(pattern, event)
+                            && (codec.parameterIndices()[event] < 0 || codec.accessors()[event] == null)) {
+                        throw new IllegalArgumentException("no parameter with name '" + pattern.name(event)
+                                + "' visible in constructor and accessors of type " + type + " at "
+                                + pattern.source(event));
+                    }
+                }
+            }
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private static Set<Class<?>> referencedTypes(Collection<Class<?>> types) {
+        Set<Class<?>> result = new LinkedHashSet<>();
+        Deque<Type> pending = new ArrayDeque<>(types);
+        while (!pending.isEmpty()) {
+            Type next = pending.pop();
+            if (next instanceof ParameterizedType parameterizedType) {
+                pending.addAll(List.of(parameterizedType.getActualTypeArguments()));
+            } else if (next instanceof Class<?> type && result.add(type)) {
+                ByteVariants byteVariants = type.getAnnotation(ByteVariants.class);
+                if (byteVariants != null) {
+                    pending.addAll(List.of(byteVariants.value()));
+                }
+                if (type.getAnnotation(ByteFormat.class) != null) {
+                    for (var constructor : type.getConstructors()) {
+                        for (var parameter : constructor.getParameters()) {
+                            pending.add(parameter.getParameterizedType());
+                        }
+                    }
+                }
+            }
+        }
+        result.removeIf(
+                type -> type.getAnnotation(ByteFormat.class) == null && type.getAnnotation(ByteVariants.class) == null);
+        return result;
+    }
+
+    private static final class Entry {
+        final ByteCodec codec;
+        volatile boolean registered;
+        volatile boolean referenced;
+
+        Entry(ByteCodec codec) {
+            this.codec = codec;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.lang.reflect.Array;
+import java.lang.reflect.Parameter;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * A run of records decoded into one array per record component: {@code boolean[]}, {@code byte[]}, {@code short[]},
+ * {@code char[]}, {@code int[]} or {@code long[]} for the primitive types and their wrappers, {@code int[]} with the
+ * {@link ByteCode}s for enums, and {@code byte[][]} with the raw bytes of {@code byte[]}, {@code ByteBuffer} and
+ * {@code String} components. Records with components of any other type, such as nested records or lists, cannot be
+ * decoded into columns. All columns have {@link #rows()} entries.
+ */
+public final class ByteColumns {
+
+    private final Class<?> type;
+    private final String[] names;
+    private final Object[] columns;
+    private final int rows;
+    private final int length;
+
+    private ByteColumns(Class<?> type, String[] names, Object[] columns, int rows, int length) {
+        this.type = type;
+        this.names = names;
+        this.columns = columns;
+        this.rows = rows;
+        this.length = length;
+    }
+
+    public Class<?> type() {
+        return type;
+    }
+
+    public int rows() {
+        return rows;
+    }
+
+    /**
+     * number of bytes the decoded records occupy in the source
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * @return the column of the record component with the given index
+     */
+    public Object column(int component) {
+        return columns[component];
+    }
+
+    /**
+     * @return the column of the record component with the given name
+     */
+    public Object column(String component) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(component)) {
+                return columns[i];
+            }
+        }
+        throw new IllegalArgumentException("no component '" + component + "' in " + type);
+    }
+
+    public int[] ints(String component) {
+        return (int[]) column(component);
+    }
+
+    public long[] longs(String component) {
+        return (long[]) column(component);
+    }
+
+    public byte[][] blobs(String component) {
+        return (byte[][]) column(component);
+    }
+
+    /**
+     * Stores the fields of each visited record into the row given by the number of completed rows. Only records whose
+     * components all have a column type are accepted, so no nested record is ever visited.
+     */
+    static final class Collector implements ByteVisitor {
+
+        private final Class<?> type;
+        private final String[] names;
+        private final Object[] columns;
+        private final int maxRows;
+        private int capacity;
+        private int rows;
+
+        Collector(ByteCodec codec, int capacity, int maxRows) {
+            if (codec.isVariantBase()) {
+                throw new IllegalArgumentException("cannot decode variants of " + codec.type() + " into columns");
+            }
+            Parameter[] parameters = codec.parameters();
+            this.type = codec.type();
+            this.names = new String[parameters.length];
+            this.columns = new Object[parameters.length];
+            this.maxRows = maxRows;
+            this.capacity = Math.max(1, Math.min(capacity, maxRows));
+            for (int i = 0; i < parameters.length; i++) {
+                names[i] = parameters[i].getName();
+                columns[i] = Array.newInstance(columnType(parameters[i].getType(), names[i]), this.capacity);
+            }
+        }
+
+        private Class<?> columnType(Class<?> componentType, String name) {
+            if (componentType == Boolean.TYPE || componentType == Boolean.class) {
+                return Boolean.TYPE;
+            }
+            if (componentType == Byte.TYPE || componentType == Byte.class) {
+                return Byte.TYPE;
+            }
+            if (componentType == Short.TYPE || componentType == Short.class) {
+                return Short.TYPE;
+            }
+            if (componentType == Character.TYPE || componentType == Character.class) {
+                return Character.TYPE;
+            }
+            if (componentType == Integer.TYPE || componentType == Integer.class || componentType.isEnum()) {
+                return Integer.TYPE;
+            }
+            if (componentType == Long.TYPE || componentType == Long.class) {
+                return Long.TYPE;
+            }
+            if (componentType == byte[].class || componentType == ByteBuffer.class || componentType == String.class) {
+                return byte[].class;
+            }
+            throw new IllegalArgumentException(
+                    "component '" + name + "' of " + type + " cannot be stored in a column of " + componentType);
+        }
+
+        int rows() {
+            return rows;
+        }
+
+        void endRow() {
+            rows++;
+        }
+
+        @Override
+        public void onRecordStart(Class<?> recordType) {
+            if (rows == capacity) {
+                capacity = (int) Math.min(maxRows, 2L * capacity);
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = resize(columns[i], capacity);
+                }
+            }
+        }
+
+        @Override
+        public void onInt(int fieldId, int value) {
+            Object column = columns[fieldId];
+            if (column instanceof int[] ints) {
+                ints[rows] = value;
+            } else if (column instanceof short[] shorts) {
+                shorts[rows] = (short) value;
+            } else if (column instanceof byte[] bytes) {
+                bytes[rows] = (byte) value;
+            } else if (column instanceof char[] chars) {
+                chars[rows] = (char) value;
+            } else if (column instanceof boolean[] booleans) {
+                booleans[rows] = value != 0;
+            } else if (column instanceof long[] longs) {
+                longs[rows] = value;
+            }
+        }
+
+        @Override
+        public void onLong(int fieldId, long value) {
+            if (columns[fieldId] instanceof long[] longs) {
+                longs[rows] = value;
+            }
+        }
+
+        @Override
+        public void onBytes(int fieldId, ByteBuffer buffer, int offset, int length) {
+            if (columns[fieldId] instanceof byte[][] blobs) {
+                byte[] blob = new byte[length];
+                buffer.get(offset, blob);
+                blobs[rows] = blob;
+            }
+        }
+
+        ByteColumns build(int length) {
+            if (rows != capacity) {
+                for (int i = 0; i < columns.length; i++) {
+                    columns[i] = resize(columns[i], rows);
+                }
+            }
+            return new ByteColumns(type, names, columns, rows, length);
+        }
+
+        private static Object resize(Object column, int size) {
+            if (column instanceof int[] ints) {
+                return Arrays.copyOf(ints, size);
+            }
+            if (column instanceof long[] longs) {
+                return Arrays.copyOf(longs, size);
+            }
+            if (column instanceof short[] shorts) {
+                return Arrays.copyOf(shorts, size);
+            }
+            if (column instanceof char[] chars) {
+                return Arrays.copyOf(chars, size);
+            }
+            if (column instanceof boolean[] booleans) {
+                return Arrays.copyOf(booleans, size);
+            }
+            if (column instanceof byte[] bytes) {
+                return Arrays.copyOf(bytes, size);
+            }
+            return Arrays.copyOf((byte[][]) column, size);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+package de.creativecouple.validation.byte_mapper;
+
+/**
+ * Maps the constants of an enum to their {@link ByteCode} and back. Codes within a small range are decoded through a
+ * dense array, scattered codes through a perfect hash table.
+ */
+final class ByteEnumCodes {
+
+    private static final ClassValue<ByteEnumCodes> CACHE = new ClassValue<>() {
+        @Override
+        protected ByteEnumCodes computeValue(Class<?> type) {
+            return new ByteEnumCodes(type);
+        }
+    };
+
+    private static final int MAX_DENSE_SPAN = 1 << 12;
+    private static final int GOLDEN_RATIO = 0x9E3779B9;
+
+    private final int[] codes;
+    private final Object[] table;
+    private final int[] tableCodes;
+    private final int base;
+    private final int multiplier;
+    private final int shift;
+
+    static ByteEnumCodes of(Class<?> type) {
+        return CACHE.get(type);
+    }
+
+    private ByteEnumCodes(Class<?> type) {
+        Object[] constants = type.getEnumConstants();
+        codes = new int[constants.length];
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        for (int ordinal = 0; ordinal < constants.length; ordinal++) {
+            codes[ordinal] = code(type, (Enum<?>) constants[ordinal]);
+            min = Math.min(min, codes[ordinal]);
+            max = Math.max(max, codes[ordinal]);
+            for (int other = 0; other < ordinal; other++) {
+                if (codes[other] == codes[ordinal]) {
+                    throw new IllegalArgumentException("code 0x" + Integer.toHexString(codes[ordinal]) + " of "
+                            + constants[ordinal] + " is already used by " + constants[other] + " in " + type);
+                }
+            }
+        }
+        if (constants.length == 0 || (long) max - min < MAX_DENSE_SPAN) {
+            base = min;
+            table = new Object[constants.length == 0 ? 0 : max - min + 1];
+            for (int ordinal = 0; ordinal < constants.length; ordinal++) {
+                table[codes[ordinal] - min] = constants[ordinal];
+            }
+            tableCodes = null;
+            multiplier = 0;
+            shift = 0;
+        } else {
+            int bits = 32 - Integer.numberOfLeadingZeros(constants.length);
+            int candidate;
+            while ((candidate = perfectMultiplier(codes, bits)) == 0) {
+                bits++;
+            }
+            base = 0;
+            multiplier = candidate;
+            shift = 32 - bits;
+            table = new Object[1 << bits];
+            tableCodes = new int[1 << bits];
+            for (int ordinal = 0; ordinal < constants.length; ordinal++) {
+                int slot = codes[ordinal] * multiplier >>> shift;
+                table[slot] = constants[ordinal];
+                tableCodes[slot] = codes[ordinal];
+            }
+        }
+    }
+
+    /**
+     * @return an odd multiplier that hashes all codes into distinct slots of a table with {@code 2^bits} entries, or 0
+     */
+    private static int perfectMultiplier(int[] codes, int bits) {
+        for (int attempt = 0; attempt < 64; attempt++) {
+            int candidate = GOLDEN_RATIO + 2 * attempt;
+            boolean[] used = new boolean[1 << bits];
+            boolean perfect = true;
+            for (int i = 0; i < codes.length && perfect; i++) {
+                int slot = codes[i] * candidate >>> 32 - bits;
+                perfect = !used[slot];
+                used[slot] = true;
+            }
+            if (perfect) {
+                return candidate;
+            }
+        }
+        return 0;
+    }
+
+    private static int code(Class<?> type, Enum<?> constant) {
+        try {
+            ByteCode code = type.getField(constant.name()).getAnnotation(ByteCode.class);
+            return code != null ? code.value() : constant.ordinal();
+        } catch (NoSuchFieldException e) {
+            return constant.ordinal();
+        }
+    }
+
+    int encode(Enum<?> constant) {
+        return codes[constant.ordinal()];
+    }
+
+    /**
+     * @return the constant with the given code, or null if there is none
+     */
+    Object decode(int code) {
+        if (tableCodes == null) {
+            int index = code - base;
+            return Integer.compareUnsigned(index, table.length) < 0 ? table[index] : null;
+        }
+        int slot = code * multiplier >>> shift;
+        return tableCodes[slot] == code ? table[slot] : null;
+    }
+
+    /**
+     * @return the number of bytes needed for the largest code, treating codes as unsigned
+     */
+    int codeSize() {
+        int size = 1;
+        for (int code : codes) {
+            size = Math.max(size, 4 - Integer.numberOfLeadingZeros(code) / 8);
+        }
+        return size;
+    }
+}
@@ -0,0 +1,243 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Decodes the records of a published byte stream for a single subscriber. Upstream chunks are requested one at a time
+ * and only while the subscriber has demand left that the bytes buffered so far cannot satisfy. A chunk may hold any
+ * number of records, but a record that is not complete yet may take at most {@code maxBufferSize} bytes, otherwise the
+ * subscriber fails. A record ends where {@link ByteMapper#measure} says so, hence records with a top-level {@code {?}}
+ * placeholder cannot be delimited in a stream. An incomplete record is measured again only once the bytes it is known
+ * to need have arrived.
+ * <p>
+ * Buffered bytes are never overwritten, so {@link ByteBuffer} components of decoded records stay valid.
+ *
+ * @see ByteMapper#flowDecoder
+ */
+public final class ByteFlowDecoder<T> implements Flow.Processor<ByteBuffer, T> {
+
+    private static final int INITIAL_CAPACITY = 1 << 12;
+
+    private final ByteMapper mapper;
+    private final Class<T> type;
+    private final int maxBufferSize;
+    private final Queue<ByteBuffer> chunks = new ConcurrentLinkedQueue<>();
+    private final AtomicLong demand = new AtomicLong();
+    private final AtomicInteger drains = new AtomicInteger();
+    private final ByteValidation validation = new ByteValidation();
+    private volatile Flow.Subscription upstream;
+    private volatile Flow.Subscriber<? super T> subscriber;
+    private volatile boolean upstreamDone;
+    private volatile Throwable failure;
+    private volatile boolean cancelled;
+    private boolean chunkRequested;
+    private boolean terminated;
+    private ByteBuffer buffer = ByteBuffer.allocate(0);
+    private int required;
+
+    ByteFlowDecoder(ByteMapper mapper, Class<T> type, int maxBufferSize) {
+        if (maxBufferSize <= 0) {
+            throw new IllegalArgumentException("buffer size " + maxBufferSize + " must be positive");
+        }
+        this.mapper = mapper;
+        this.type = type;
+        this.maxBufferSize = maxBufferSize;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        synchronized (this) {
+            if (this.subscriber == null) {
+                subscriber.onSubscribe(new Subscription());
+                this.subscriber = subscriber;
+                subscriber = null;
+            }
+        }
+        if (subscriber != null) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                }
+
+                @Override
+                public void cancel() {
+                }
+            });
+            subscriber.onError(new IllegalStateException(getClass().getSimpleName() + " supports a single subscriber"));
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onSubscribe(Flow.Subscription subscription) {
+        if (upstream != null) {
+            subscription.cancel();
+            return;
+        }
+        upstream = subscription;
+        if (cancelled) {
+            subscription.cancel();
+            return;
+        }
+        drain();
+    }
+
+    @Override
+    public void onNext(ByteBuffer chunk) {
+        chunks.add(chunk);
+        drain();
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        failure = throwable;
+        upstreamDone = true;
+        drain();
+    }
+
+    @Override
+    public void onComplete() {
+        upstreamDone = true;
+        drain();
+    }
+
+    /**
+     * Runs on whichever thread signals while no other drain is running, and repeats while signals arrived meanwhile, so
+     * that the buffer and the subscriber are only ever touched by one thread at a time.
+     */
+    private void drain() {
+        if (drains.getAndIncrement() != 0) {
+            return;
+        }
+        do {
+            Flow.Subscriber<? super T> downstream = subscriber;
+            if (downstream != null && !terminated) {
+                try {
+                    emit(downstream);
+                } catch (RuntimeException | EOFException e) {
+                    terminate(downstream, e);
+                }
+            }
+        } while (drains.decrementAndGet() != 0);
+    }
+
+    private void emit(Flow.Subscriber<? super T> downstream) throws EOFException {
+        for (ByteBuffer chunk; (chunk = chunks.poll()) != null;) {
+            chunkRequested = false;
+            append(chunk);
+        }
+        if (failure != null) {
+            terminate(downstream, failure);
+            return;
+        }
+        while (!cancelled && demand.get() > 0) {
+            T record = nextRecord();
+            if (record == null) {
+                break;
+            }
+            demand.decrementAndGet();
+            downstream.onNext(record);
+        }
+        if (cancelled) {
+            terminated = true;
+            return;
+        }
+        if (upstreamDone && chunks.isEmpty()) {
+            if (!buffer.hasRemaining()) {
+                terminated = true;
+                downstream.onComplete();
+            } else if (mapper.measure(buffer, buffer.position(), type) == ByteMapper.INCOMPLETE) {
+                throw new EOFException("stream ends within a record of " + buffer.remaining() + " bytes");
+            }
+            return;
+        }
+        Flow.Subscription subscription = upstream;
+        if (subscription != null && demand.get() > 0 && !chunkRequested && !upstreamDone) {
+            chunkRequested = true;
+            subscription.request(1);
+        }
+    }
+
+    /**
+     * @return the next complete record in the buffer, or null if more bytes are needed
+     */
+    private T nextRecord() {
+        if (buffer.remaining() < required) {
+            return null;
+        }
+        int length = mapper.measure(buffer, buffer.position(), type, validation);
+        if (length == ByteMapper.INCOMPLETE) {
+            required = validation.required() - buffer.position();
+            if (Math.max(required, buffer.remaining()) > maxBufferSize) {
+                throw new IllegalArgumentException(
+                        "record of " + type.getSimpleName() + " exceeds " + maxBufferSize + " buffered bytes");
+            }
+            return null;
+        }
+        required = 0;
+        if (length == ByteMapper.MALFORMED) {
+            throw new IllegalArgumentException(
+                    "malformed " + type.getSimpleName() + " record in stream: " + mapper.validate(buffer, type));
+        }
+        int start = buffer.position();
+        buffer.position(start + length);
+        return mapper.readBytes(buffer.slice(start, length), type);
+    }
+
+    /**
+     * Appends behind the buffered bytes, or moves them into a new buffer together with the chunk if there is no room
+     * left. Decoded bytes are left behind instead of being compacted.
+     */
+    private void append(ByteBuffer chunk) {
+        int pending = buffer.remaining();
+        int length = chunk.remaining();
+        if (buffer.capacity() - buffer.limit() < length) {
+            int capacity = Math.max(pending + length, Math.min(maxBufferSize, Math.max(INITIAL_CAPACITY, 2 * pending)));
+            ByteBuffer grown = ByteBuffer.allocate(capacity);
+            grown.put(buffer).flip();
+            buffer = grown;
+        }
+        int end = buffer.limit();
+        buffer.limit(end + length);
+        buffer.put(end, chunk, chunk.position(), length);
+    }
+
+    private void terminate(Flow.Subscriber<? super T> downstream, Throwable throwable) {
+        terminated = true;
+        Flow.Subscription subscription = upstream;
+        if (subscription != null && !upstreamDone) {
+            subscription.cancel();
+        }
+        chunks.clear();
+        downstream.onError(throwable);
+    }
+
+    private final class Subscription implements Flow.Subscription {
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                failure = new IllegalArgumentException("non-positive request " + n);
+            } else {
+                demand.accumulateAndGet(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            }
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            Flow.Subscription subscription = upstream;
+            if (subscription != null) {
+                subscription.cancel();
+            }
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.Builder;
+
+/**
+ * Upper bounds for sizes taken from the decoded data, so that a forged size variable fails before anything is allocated
+ * for it. Zero means unlimited.
+ *
+ * @param maxFieldLength
+ *            bytes of a single variable-sized field, such as a {@code byte[]}, a {@code String} or a list
+ * @param maxListCount
+ *            elements of a single list
+ * @param maxMessageSize
+ *            bytes of a whole record, including variable-sized groups
+ */
+@Builder
+public record ByteLimits(int maxFieldLength, int maxListCount, int maxMessageSize) {
+
+    public static final ByteLimits NONE = new ByteLimits(0, 0, 0);
+
+    public ByteLimits {
+        if (maxFieldLength < 0 || maxListCount < 0 || maxMessageSize < 0) {
+            throw new IllegalArgumentException(
+                    "negative limit among " + maxFieldLength + ", " + maxListCount + ", " + maxMessageSize);
+        }
+    }
+
+    boolean isUnlimited() {
+        return maxFieldLength == 0 && maxListCount == 0 && maxMessageSize == 0;
+    }
+}
@@ -0,0 +1,50 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * Peeks at the next bytes of a stream without consuming them. Buffer-backed sources are viewed in place, other streams
+ * need mark/reset support or must be made {@link #peekable} first.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ByteLookahead {
+
+    static final int DEFAULT_WINDOW = 8;
+
+    /**
+     * Streams without mark support are wrapped to push back up to {@code window} bytes. A window must not exceed the
+     * number of bytes the following record consumes, otherwise the excess would be lost to the caller's stream.
+     */
+    static InputStream peekable(InputStream input, int window) {
+        if (input.markSupported()) {
+            return input;
+        }
+        return new PushbackInputStream(input, Math.max(1, window));
+    }
+
+    /**
+     * @return a view on at most {@code window} upcoming bytes, fewer if the stream ends before
+     */
+    static ByteBuffer peek(InputStream input, int window) throws IOException {
+        if (input instanceof ByteBufferInputStream source) {
+            return source.peek(window);
+        }
+        if (input instanceof PushbackInputStream pushback) {
+            byte[] bytes = pushback.readNBytes(window);
+            pushback.unread(bytes);
+            return ByteBuffer.wrap(bytes);
+        }
+        input.mark(window);
+        try {
+            return ByteBuffer.wrap(input.readNBytes(window));
+        } finally {
+            input.reset();
+        }
+    }
+}
@@ -1,10 +1,11 @@
 package de.creativecouple.validation.byte_mapper;
 
+import lombok.Builder;
 import lombok.RequiredArgsConstructor;
 import lombok.SneakyThrows;
 import lombok.With;
 
-import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
@@ -12,25 +13,137 @@ import java.io.OutputStream;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Method;
 import java.lang.reflect.Parameter;
-import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.SelectableChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.zip.Checksum;
 
-import static de.creativecouple.validation.byte_mapper.BytePatterns.getBytePattern;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.CHECKSUM_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.GROUP_LENGTH_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.INVALID_SIZE;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.LIMIT_EXCEEDED;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.NO_VARIANT_MATCHED;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.PATTERN_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.UNEXPECTED_END;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.UNKNOWN_CODE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.ANONYMOUS;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_BYTES;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_BEGIN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_END;
+import static de.creativecouple.validation.byte_mapper.BytePattern.LITTLE_ENDIAN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.PLACEHOLDER;
+import static de.creativecouple.validation.byte_mapper.BytePattern.REST_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.VARINT_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.ZIGZAG;
+import static de.creativecouple.validation.byte_mapper.BytePattern.isVarint;
+import static de.creativecouple.validation.byte_mapper.ByteValidator.listElementType;
 import static java.lang.Integer.toUnsignedLong;
 
 public class ByteMapper {
 
+    public static final int INCOMPLETE = -1;
+    public static final int MALFORMED = -2;
+
+    static final int GATHER_THRESHOLD = 1024;
+    private static final int MAX_SCRATCH_CAPACITY = 1 << 16;
+    private static final int REST_READ_STEP = 1 << 13;
+    /**
+     * batches are flushed before the scratch has to grow beyond {@link #MAX_SCRATCH_CAPACITY}, so that it is kept
+     */
+    private static final int BATCH_FLUSH_SIZE = MAX_SCRATCH_CAPACITY / 2;
+    private static final int MAX_PRESIZED_ELEMENTS = 1 << 12;
+
+    private final ByteMapperMetrics metrics;
+    private final int lookahead;
+    private final ByteLimits limits;
+    private final Map<Class<?>, ByteLimits> typeLimits;
+    private final ByteCodecs codecs;
+    private final ByteValidator validator;
+    private final ByteResyncScanner scanner;
+    private final ByteStringCache strings;
+    final BytePayloads payloads = new BytePayloads();
+    final ThreadLocal<ResettableByteArrayOutputStream> gatherScratch = ThreadLocal
+            .withInitial(() -> new ResettableByteArrayOutputStream(GATHER_THRESHOLD));
+
+    public ByteMapper() {
+        this(null, 0, null, 0, 0, null, Map.of());
+    }
+
+    /**
+     * @param charset
+     *            for String components, UTF-8 by default
+     * @param stringCacheSize
+     *            number of recently decoded strings to reuse, 0 to always allocate new ones
+     * @param lookahead
+     *            number of leading bytes compared to tell {@link ByteVariants} apart, 8 by default
+     * @param limits
+     *            for sizes read from decoded data, none by default
+     * @param typeLimits
+     *            replacing {@code limits} for particular record types, see {@link ByteMapperBuilder#typeLimit}
+     */
+    @Builder
+    private ByteMapper(ByteMapperMetrics metrics, int maxCachedTypes, Charset charset, int stringCacheSize,
+            int lookahead, ByteLimits limits, Map<Class<?>, ByteLimits> typeLimits) {
+        if (lookahead < 0) {
+            throw new IllegalArgumentException("negative lookahead " + lookahead);
+        }
+        this.metrics = metrics;
+        this.lookahead = lookahead > 0 ? lookahead : ByteLookahead.DEFAULT_WINDOW;
+        this.limits = limits != null ? limits : ByteLimits.NONE;
+        this.typeLimits = Map.copyOf(typeLimits);
+        this.codecs = new ByteCodecs(maxCachedTypes);
+        this.validator = new ByteValidator(codecs, this.lookahead);
+        this.scanner = new ByteResyncScanner(codecs, validator);
+        this.strings = new ByteStringCache(charset != null ? charset : StandardCharsets.UTF_8, stringCacheSize);
+    }
+
+    public static class ByteMapperBuilder {
+
+        private final Map<Class<?>, ByteLimits> typeLimits = new HashMap<>();
+
+        /**
+         * replaces {@code limits} for the given record type, or for the variants of a {@link ByteVariants} type that
+         * have no limits of their own
+         */
+        public ByteMapperBuilder typeLimit(Class<?> type, ByteLimits limits) {
+            typeLimits.put(type, limits);
+            return this;
+        }
+
+        public ByteMapperBuilder typeLimits(Map<Class<?>, ByteLimits> typeLimits) {
+            this.typeLimits.putAll(typeLimits);
+            return this;
+        }
+    }
+
     public <T> T readBytes(byte[] bytes, Class<T> type) {
         return readBytes(bytes, 0, bytes.length, type);
     }
 
     public <T> T readBytes(byte[] bytes, int offset, int length, Class<T> type) {
-        return readBytes(new ByteArrayInputStream(bytes, offset, length), length, type);
+        return readBytes(ByteBuffer.wrap(bytes, offset, length), type);
+    }
+
+    /**
+     * reads from the buffer's position without moving it; {@link ByteBuffer} components become read-only slices of
+     * {@code buffer}
+     */
+    public <T> T readBytes(ByteBuffer buffer, Class<T> type) {
+        return readBytes(new ByteBufferInputStream(buffer), buffer.remaining(), type);
     }
 
     public <T> T readBytes(InputStream input, Class<T> type) {
@@ -39,12 +152,157 @@ public class ByteMapper {
 
     @SneakyThrows
     public <T> T readBytes(InputStream input, int size, Class<T> type) {
-        type = findVariantType(type, input);
         @SuppressWarnings("unchecked")
-        Constructor<T> constructor = (Constructor<T>) type.getConstructors()[0];
-        Parameter[] parameters = constructor.getParameters();
-        Object[] params = new InputStreamParser(input, size).parse(getBytePattern(type), parameters);
-        return constructor.newInstance(params);
+        T result = (T) decode(input, size, type).value();
+        return result;
+    }
+
+    private Decoded decode(InputStream input, int size, Class<?> type) throws Exception {
+        ByteReadEvent event = new ByteReadEvent();
+        event.begin();
+        payloads.check(input);
+        InputStream source = input;
+        ByteCodec base = codecs.get(type);
+        int window = lookahead;
+        if (base.isVariantBase() && !input.markSupported()) {
+            window = lookahead(base);
+            input = ByteLookahead.peekable(input, window);
+        }
+        ByteCodec codec = findVariant(base, input, window);
+        InputStreamParser parser = new InputStreamParser(input, size, codec, source, limitsOf(codec.type(), type));
+        Object[] params = parser.parse(codec);
+        Object result = codec.constructor().newInstance(params);
+        event.commit(type, codec.type(), parser.bytesParsed);
+        if (metrics != null) {
+            metrics.onRead(codec.type(), parser.bytesParsed);
+        }
+        return new Decoded(result, parser.bytesParsed);
+    }
+
+    private record Decoded(Object value, int length) {
+    }
+
+    /**
+     * @return the limits registered for the decoded variant, else those for the requested type, else the default ones
+     */
+    private ByteLimits limitsOf(Class<?> variant, Class<?> requested) {
+        ByteLimits variantLimits = typeLimits.get(variant);
+        return variantLimits != null ? variantLimits : typeLimits.getOrDefault(requested, limits);
+    }
+
+    public ByteValidation validate(byte[] bytes, Class<?> type) {
+        return validate(bytes, 0, bytes.length, type, new ByteValidation());
+    }
+
+    public ByteValidation validate(byte[] bytes, int offset, int length, Class<?> type, ByteValidation result) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        return validator.validate(ByteBuffer.wrap(bytes), offset, offset + length, type, result);
+    }
+
+    public ByteValidation validate(ByteBuffer buffer, Class<?> type) {
+        return validate(buffer, type, new ByteValidation());
+    }
+
+    public ByteValidation validate(ByteBuffer buffer, Class<?> type, ByteValidation result) {
+        return validator.validate(buffer, buffer.position(), buffer.limit(), type, result);
+    }
+
+    /**
+     * Decodes without building objects. Callbacks for a record may precede the detection of a later malformation.
+     */
+    public ByteValidation visit(byte[] bytes, int offset, int length, Class<?> type, ByteVisitor visitor) {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        return validator.visit(ByteBuffer.wrap(bytes), offset, offset + length, type, visitor, new ByteValidation());
+    }
+
+    public ByteValidation visit(ByteBuffer buffer, Class<?> type, ByteVisitor visitor, ByteValidation result) {
+        return validator.visit(buffer, buffer.position(), buffer.limit(), type, visitor, result);
+    }
+
+    public ByteColumns readColumns(byte[] bytes, Class<?> type, int maxRecords) {
+        return readColumns(ByteBuffer.wrap(bytes), type, maxRecords);
+    }
+
+    /**
+     * Decodes up to {@code maxRecords} consecutive records from the remaining bytes into one array per record
+     * component, without creating record objects and without moving the buffer's position. Stops early before a record
+     * that is cut off by the end of the buffer.
+     */
+    public ByteColumns readColumns(ByteBuffer buffer, Class<?> type, int maxRecords) {
+        ByteCodec codec = codecs.get(type);
+        int fixedLength = codec.isVariantBase() ? -1 : codec.pattern().fixedLength();
+        int start = buffer.position();
+        int limit = buffer.limit();
+        ByteColumns.Collector columns = new ByteColumns.Collector(codec,
+                fixedLength > 0 ? (limit - start) / fixedLength : MAX_PRESIZED_ELEMENTS, maxRecords);
+        ByteValidation result = new ByteValidation();
+        int pos = start;
+        while (columns.rows() < maxRecords && pos < limit) {
+            validator.visit(buffer, pos, limit, type, columns, result);
+            if (!result.ok()) {
+                if (result.failure() == UNEXPECTED_END && result.offset() == limit) {
+                    break;
+                }
+                throw new IllegalArgumentException("cannot decode record " + columns.rows() + ": " + result);
+            }
+            columns.endRow();
+            pos += result.length();
+        }
+        return columns.build(pos - start);
+    }
+
+    /**
+     * @return a processor decoding the byte chunks it subscribes to into records for one subscriber, buffering at most
+     *         {@code maxBufferSize} bytes
+     */
+    public <T> ByteFlowDecoder<T> flowDecoder(Class<T> type, int maxBufferSize) {
+        return new ByteFlowDecoder<>(this, type, maxBufferSize);
+    }
+
+    /**
+     * @return the number of bytes of the record starting at {@code offset}, {@link #INCOMPLETE} if more bytes are
+     *         needed to tell, or {@link #MALFORMED}; records with a top-level {@code {?}} placeholder extend to the end
+     *         of the given data
+     */
+    public int measure(byte[] bytes, int offset, Class<?> type) {
+        Objects.checkIndex(offset, bytes.length + 1);
+        return validator.measure(ByteBuffer.wrap(bytes), offset, bytes.length, type);
+    }
+
+    public int measure(ByteBuffer buffer, int offset, Class<?> type) {
+        Objects.checkIndex(offset, buffer.limit() + 1);
+        return validator.measure(buffer, offset, buffer.limit(), type);
+    }
+
+    int measure(ByteBuffer buffer, int offset, Class<?> type, ByteValidation result) {
+        return validator.measure(buffer, offset, buffer.limit(), type, result);
+    }
+
+    /**
+     * @return the index of the next valid, or valid but incomplete, record at or after {@code from}, or -1
+     */
+    public int resync(byte[] bytes, int from, Class<?> type) {
+        Objects.checkIndex(from, bytes.length + 1);
+        return scanner.resync(ByteBuffer.wrap(bytes), from, bytes.length, type);
+    }
+
+    public int resync(ByteBuffer buffer, int from, Class<?> type) {
+        Objects.checkIndex(from, buffer.limit() + 1);
+        return scanner.resync(buffer, from, buffer.limit(), type);
+    }
+
+    public ByteMapper precompile(Class<?>... types) {
+        codecs.precompile(List.of(types));
+        return this;
+    }
+
+    public ByteMapper precompilePackage(String packageName) {
+        return precompilePackage(Thread.currentThread().getContextClassLoader(), packageName);
+    }
+
+    public ByteMapper precompilePackage(ClassLoader classLoader, String packageName) {
+        codecs.precompile(ByteTypeScanner.scan(classLoader, packageName));
+        return this;
     }
 
     public byte[] writeBytes(Object value) {
@@ -57,8 +315,221 @@ public class ByteMapper {
         stream.write(writeBytes(value));
     }
 
+    /**
+     * Writes fields of at least {@value #GATHER_THRESHOLD} bytes from byte[] and ByteBuffer components to the channel
+     * without copying them, in a single gathering write together with the encoded rest. Blocks until all bytes are
+     * written.
+     *
+     * @return the number of bytes written
+     *
+     * @throws IllegalArgumentException
+     *             if the channel is a {@link SelectableChannel} in non-blocking mode, which would have to be polled
+     */
+    public long writeBytes(GatheringByteChannel channel, Object value) throws IOException {
+        if (channel instanceof SelectableChannel selectable && !selectable.isBlocking()) {
+            throw new IllegalArgumentException("channel must be in blocking mode");
+        }
+        ResettableByteArrayOutputStream stream = gatherScratch.get();
+        try {
+            writeBytes(stream, value);
+            ByteBuffer[] buffers = stream.buffers();
+            long written = 0;
+            for (int first = 0; first < buffers.length;) {
+                written += channel.write(buffers, first, buffers.length - first);
+                while (first < buffers.length && !buffers[first].hasRemaining()) {
+                    first++;
+                }
+            }
+            return written;
+        } finally {
+            stream.clear();
+            if (stream.capacity() > MAX_SCRATCH_CAPACITY) {
+                gatherScratch.remove();
+            }
+        }
+    }
+
+    /**
+     * Encodes the value at the buffer's position and advances it. Heap and direct buffers alike, including
+     * memory-mapped file regions, receive the encoded bytes in a single bulk copy from a reused scratch stream.
+     *
+     * @return the number of bytes written
+     *
+     * @throws BufferOverflowException
+     *             if the encoded value does not fit the buffer's remaining bytes, leaving the buffer untouched
+     */
+    public int writeBytes(ByteBuffer buffer, Object value) {
+        ResettableByteArrayOutputStream stream = gatherScratch.get();
+        try {
+            writeBytes(stream, value);
+            if (stream.size() > buffer.remaining()) {
+                throw new BufferOverflowException();
+            }
+            for (ByteBuffer part : stream.buffers()) {
+                buffer.put(part);
+            }
+            return stream.size();
+        } finally {
+            stream.clear();
+            if (stream.capacity() > MAX_SCRATCH_CAPACITY) {
+                gatherScratch.remove();
+            }
+        }
+    }
+
+    /**
+     * Encodes the values back to back into a reused scratch stream, which is written to the output stream whenever it
+     * holds {@value #BATCH_FLUSH_SIZE} bytes or more. Codecs are resolved once per run of values of the same class, and
+     * records are reported to the metrics once they have been written to the output stream.
+     *
+     * @return the number of bytes written
+     */
+    public long writeAll(OutputStream stream, Iterable<?> values) throws IOException {
+        ResettableByteArrayOutputStream scratch = gatherScratch.get();
+        BatchEncoder batch = new BatchEncoder();
+        long written = 0;
+        try {
+            for (Object value : values) {
+                batch.encode(scratch, value);
+                if (scratch.size() >= BATCH_FLUSH_SIZE) {
+                    written += transfer(scratch, stream);
+                    batch.written();
+                }
+            }
+            written += transfer(scratch, stream);
+            batch.commit(written);
+            return written;
+        } finally {
+            scratch.clear();
+            if (scratch.capacity() > MAX_SCRATCH_CAPACITY) {
+                gatherScratch.remove();
+            }
+        }
+    }
+
+    /**
+     * Encodes the values back to back at the buffer's position and advances it, copying from a reused scratch stream in
+     * chunks of {@value #BATCH_FLUSH_SIZE} bytes or more. If any value fails to encode, or the encoded values do not
+     * fit, the position is left untouched and no record is reported to the metrics.
+     *
+     * @return the number of bytes written
+     *
+     * @throws BufferOverflowException
+     *             if the encoded values do not fit the buffer's remaining bytes
+     */
+    public int writeAll(ByteBuffer buffer, Iterable<?> values) {
+        ResettableByteArrayOutputStream scratch = gatherScratch.get();
+        BatchEncoder batch = new BatchEncoder();
+        int start = buffer.position();
+        try {
+            for (Object value : values) {
+                batch.encode(scratch, value);
+                if (scratch.size() >= BATCH_FLUSH_SIZE) {
+                    transfer(scratch, buffer);
+                }
+            }
+            transfer(scratch, buffer);
+            batch.commit(buffer.position() - start);
+            return buffer.position() - start;
+        } catch (Throwable e) {
+            buffer.position(start);
+            throw e;
+        } finally {
+            scratch.clear();
+            if (scratch.capacity() > MAX_SCRATCH_CAPACITY) {
+                gatherScratch.remove();
+            }
+        }
+    }
+
+    private static int transfer(ResettableByteArrayOutputStream scratch, OutputStream stream) throws IOException {
+        int size = scratch.size();
+        for (ByteBuffer part : scratch.buffers()) {
+            if (part.hasArray()) {
+                stream.write(part.array(), part.arrayOffset() + part.position(), part.remaining());
+            } else {
+                byte[] copy = new byte[part.remaining()];
+                part.get(copy);
+                stream.write(copy);
+            }
+        }
+        scratch.clear();
+        return size;
+    }
+
+    private static void transfer(ResettableByteArrayOutputStream scratch, ByteBuffer buffer) {
+        if (scratch.size() > buffer.remaining()) {
+            throw new BufferOverflowException();
+        }
+        for (ByteBuffer part : scratch.buffers()) {
+            buffer.put(part);
+        }
+        scratch.clear();
+    }
+
+    /**
+     * Keeps the codec of the previous value, holds back the metrics of encoded records until they are written, and
+     * reports a whole batch as one write event.
+     */
+    private final class BatchEncoder {
+
+        private final ByteWriteEvent event = new ByteWriteEvent();
+        private Class<?> type;
+        private ByteCodec codec;
+        private boolean mixed;
+        private Class<?>[] types = new Class<?>[16];
+        private int[] lengths = new int[16];
+        private int unwritten;
+
+        BatchEncoder() {
+            event.begin();
+        }
+
+        void encode(ResettableByteArrayOutputStream stream, Object value) {
+            if (value == null) {
+                return;
+            }
+            if (value.getClass() != type) {
+                mixed |= type != null;
+                type = value.getClass();
+                codec = codecs.get(type);
+            }
+            int length = new OutputStreamProducer(stream, -1).produce(value, codec);
+            if (metrics != null) {
+                if (unwritten == lengths.length) {
+                    types = Arrays.copyOf(types, 2 * unwritten);
+                    lengths = Arrays.copyOf(lengths, 2 * unwritten);
+                }
+                types[unwritten] = type;
+                lengths[unwritten++] = length;
+            }
+        }
+
+        /**
+         * reports the records encoded so far to the metrics, as their bytes have reached the output
+         */
+        void written() {
+            for (int i = 0; i < unwritten; i++) {
+                metrics.onWrite(types[i], lengths[i]);
+                types[i] = null;
+            }
+            unwritten = 0;
+        }
+
+        void commit(long bytes) {
+            written();
+            event.commit(mixed ? Object.class : type, (int) Math.min(bytes, Integer.MAX_VALUE));
+        }
+    }
+
     private void writeBytes(ResettableByteArrayOutputStream stream, Object value) {
+        ByteWriteEvent event = new ByteWriteEvent();
+        event.begin();
         writeBytes(stream, value, -1);
+        event.commit(value == null ? null : value.getClass(), stream.size());
+        if (metrics != null && value != null) {
+            metrics.onWrite(value.getClass(), stream.size());
+        }
     }
 
     @SneakyThrows
@@ -69,96 +540,96 @@ public class ByteMapper {
         return new OutputStreamProducer(output, size).produce(value);
     }
 
-    @SneakyThrows
-    @SuppressWarnings("unchecked")
-    private <T> Class<T> findVariantType(Class<T> baseType, InputStream input) {
-        ByteVariants variants = baseType.getAnnotation(ByteVariants.class);
-        if (variants == null) {
-            return baseType;
-        }
-        for (Class<?> type : variants.value()) {
-            if (firstBytesMatch(input, getBytePattern(type))) {
-                return (Class<T>) type;
-            }
+    /**
+     * @return how many bytes can be taken from a stream without reading beyond the record, whichever variant it turns
+     *         out to be
+     */
+    private int lookahead(ByteCodec base) {
+        int window = lookahead;
+        for (ByteCodec variant : base.variants()) {
+            window = Math.min(window, variant.pattern().fixedPrefixLength());
         }
-        throw newNoMatchFound(baseType, input);
+        return window;
     }
 
     @SneakyThrows
-    private static <T> Exception newNoMatchFound(Class<T> baseType, InputStream input) {
-        input.mark(8);
-        byte[] actual = new byte[8];
-        int len = input.read(actual);
-        return new IllegalArgumentException("no variant pattern matched for type " + baseType + " given the " + len
-                + " bytes: " + ByteArrays.toString(actual));
-    }
-
-    private static final int nrTestBytes = 8;
-
-    @SneakyThrows
-    private static boolean firstBytesMatch(InputStream input, BytePatternEvent[] pattern) {
-        input.mark(nrTestBytes);
-        try {
-            int bytesMatched = 0;
-            for (BytePatternEvent event : pattern) {
-                switch (event.event()) {
-                case CONSTANT_BYTES -> {
-                    for (long l = (long) event.value(),
-                            i = event.size().constantValue(); i > 0; i--, l = l >> 8, bytesMatched++) {
-                        int b = input.read();
-                        if (b < 0) {
-                            return true;
-                        }
-                        if (((int) l & 0xFF) != b) {
-                            return false;
-                        }
-                    }
-                }
-                case PLACEHOLDER -> {
-                    if (event.size().isVariable()) {
-                        return true;
-                    }
-                    long skipped = input.skip(event.size().constantValue());
-                    if (skipped < event.size().constantValue()) {
-                        return true;
-                    }
-                    bytesMatched += event.size().constantValue();
-                }
-                }
-                if (bytesMatched >= nrTestBytes) {
-                    break;
+    private ByteCodec findVariant(ByteCodec base, InputStream input, int window) {
+        if (!base.isVariantBase()) {
+            return base;
+        }
+        ByteBuffer upcoming = ByteLookahead.peek(input, window);
+        for (ByteCodec variant : base.variants()) {
+            if (ByteValidator.prefixMatches(upcoming, 0, upcoming.limit(), variant.pattern(),
+                    lookahead) != ByteValidator.NO_MATCH) {
+                if (metrics != null) {
+                    metrics.onVariant(base.type(), variant.type());
                 }
+                return variant;
             }
-            return true;
-        } finally {
-            input.reset();
+        }
+        failed(base.type(), NO_VARIANT_MATCHED, -1);
+        byte[] actual = new byte[upcoming.limit()];
+        upcoming.get(0, actual);
+        throw new IllegalArgumentException("no variant pattern matched for type " + base.type() + " given the "
+                + actual.length + " bytes: " + ByteArrays.toString(actual));
+    }
+
+    private void failed(Class<?> type, ByteMappingFailure reason, int streamIndex) {
+        ByteMappingFailureEvent.emit(type, reason, streamIndex);
+        if (metrics != null) {
+            metrics.onFailure(type, reason);
         }
     }
 
     private class InputStreamParser {
 
         private final InputStream input;
+        private final Class<?> type;
+        private final BytePattern pattern;
         private int maxLength;
         private int maxLengthOutsideGroup = -1;
         private int bytesParsedOutsideGroup = -1;
         private int bytesParsed = 0;
-        private BytePatternEvent currentGroupStartEvent = null;
-        private final Map<String, Integer> variables = new HashMap<>();
+        private int listBytes;
+        private int varintBytes;
+        private int restBytes;
+        private int restEvent;
+        private int currentGroupStartEvent = -1;
+        private final int[] variables;
+        private final boolean[] definedVariables;
+        private final ChecksumInputStream checksums;
+        private final ByteLimits limits;
+        private final InputStream source;
 
-        InputStreamParser(InputStream input, int maxLength) {
-            this.input = input;
+        /**
+         * @param source
+         *            the stream the caller reads from, which {@code input} may wrap
+         */
+        InputStreamParser(InputStream input, int maxLength, ByteCodec codec, InputStream source, ByteLimits limits) {
+            this.source = source;
             this.maxLength = maxLength;
+            this.type = codec.type();
+            this.limits = limits;
+            this.pattern = codec.pattern();
+            this.checksums = pattern.checksumStarts != null ? new ChecksumInputStream(input, pattern) : null;
+            this.input = checksums != null ? checksums : input;
+            this.variables = new int[pattern.symbols.length];
+            this.definedVariables = new boolean[pattern.symbols.length];
         }
 
-        public Object[] parse(BytePatternEvent[] pattern, Parameter[] parameters) {
+        public Object[] parse(ByteCodec codec) {
+            Parameter[] parameters = codec.parameters();
             Object[] result = new Object[parameters.length];
 
-            for (BytePatternEvent event : pattern) {
-                switch (event.event()) {
+            for (int event = 0; event < pattern.length; event++) {
+                if (checksums != null) {
+                    checksums.startAt(event);
+                }
+                switch (pattern.opcodes[event]) {
                 case CONSTANT_BYTES -> handleConstantByte(event);
-                case PLACEHOLDER -> handlePlaceholder(event, parameters, result);
+                case PLACEHOLDER -> handlePlaceholder(event, codec.parameterIndices()[event], parameters, result);
                 case GROUP_BEGIN -> handleGroupStart(event);
-                case GROUP_END -> handleGroupEnd(event);
+                case GROUP_END -> handleGroupEnd();
                 }
             }
 
@@ -166,147 +637,238 @@ public class ByteMapper {
         }
 
         @SneakyThrows
-        private void handleConstantByte(BytePatternEvent event) {
-            LinearSizeValue size = event.size();
-            for (long l = (long) event.value(), i = size.constantValue(); i > 0; i--, l = l >> 8) {
+        private void handleConstantByte(int event) {
+            for (long l = pattern.constants[event], i = pattern.sizes[event]; i > 0; i--, l = l >> 8) {
                 int b = readByte();
                 if (((int) l & 0xFF) != b) {
+                    failed(type, PATTERN_MISMATCH, bytesParsed);
                     throw new NumberFormatException("byte 0x" + Integer.toHexString(b) + " at stream index "
-                            + bytesParsed + " does not match pattern '" + event.source().pattern() + "'");
+                            + bytesParsed + " does not match pattern '" + pattern.source(event).pattern() + "'");
                 }
             }
-            incBytesParsed(size.constantValue());
+            incBytesParsed(pattern.sizes[event]);
         }
 
         private int readByte() throws IOException {
             int b = input.read();
             if (b < 0) {
-                throw new EOFException("byte stream ends unexpectedly");
+                throw unexpectedEnd("byte stream ends unexpectedly");
             }
             return b;
         }
 
+        private EOFException unexpectedEnd(String message) {
+            failed(type, UNEXPECTED_END, bytesParsed);
+            return new EOFException(message);
+        }
+
         @SneakyThrows
         private void incBytesParsed(int count) {
-            if (maxLength >= 0 && count >= 0) {
+            if (count >= 0) {
                 bytesParsed += count;
-                if (bytesParsed > maxLength) {
-                    throw new EOFException("reading more than " + maxLength + " bytes");
+                if (maxLength >= 0 && bytesParsed > maxLength) {
+                    throw unexpectedEnd("reading more than " + maxLength + " bytes");
+                }
+                int messageSize = bytesParsed + Math.max(0, bytesParsedOutsideGroup);
+                if (limits.maxMessageSize() > 0 && messageSize > limits.maxMessageSize()) {
+                    failed(type, LIMIT_EXCEEDED, messageSize);
+                    throw new IllegalArgumentException(
+                            type.getSimpleName() + " exceeds " + limits.maxMessageSize() + " bytes");
                 }
             }
         }
 
-        private void handlePlaceholder(BytePatternEvent event, Parameter[] parameters, Object[] results) {
-            LinearSizeValue size = event.size();
+        private void handlePlaceholder(int event, int parameterIndex, Parameter[] parameters, Object[] results) {
             final int placeholderLength;
-            if (size.isVariable()) {
-                if (size.sizeVariable().equals("?") && size.linearFactor() == 1) { // all the rest bytes
-                    if (maxLength >= 0) {
-                        placeholderLength = maxLength - bytesParsed + size.constantValue();
-                    } else {
-                        placeholderLength = -1;
-                    }
-                } else if (!variables.containsKey(size.sizeVariable())) {
-                    throw new IllegalArgumentException(
-                            "size name '" + size.sizeVariable() + "' was not defined before");
+            int sizeVariable = pattern.sizeVariables[event];
+            if (sizeVariable == CONSTANT_SIZE) {
+                placeholderLength = pattern.sizes[event];
+            } else if (sizeVariable == VARINT_SIZE) {
+                addParameterValue(event, -1, parameterIndex, parameters, results);
+                incBytesParsed(varintBytes);
+                return;
+            } else if (sizeVariable == REST_SIZE && pattern.sizeFactors[event] == 1) { // all the rest bytes
+                if (maxLength >= 0) {
+                    placeholderLength = maxLength - bytesParsed + pattern.sizes[event];
+                    checkLimit(event, placeholderLength, limits.maxFieldLength(), "field length");
                 } else {
-                    placeholderLength = size.constantValue() + size.linearFactor() * variables.get(size.sizeVariable());
+                    placeholderLength = -1;
+                    restBytes = 0;
+                    restEvent = event;
                 }
+            } else if (sizeVariable < 0 || !definedVariables[sizeVariable]) {
+                throw new IllegalArgumentException(
+                        "size name '" + pattern.sizeVariableName(event) + "' was not defined before");
+            } else if (pattern.counted[event]) {
+                addCountedValue(event, variables[sizeVariable], parameterIndex, parameters, results);
+                incBytesParsed(listBytes);
+                return;
             } else {
-                placeholderLength = size.constantValue();
+                placeholderLength = pattern.sizes[event] + pattern.sizeFactors[event] * variables[sizeVariable];
+                checkLimit(event, (long) placeholderLength + bytesParsed + Math.max(0, bytesParsedOutsideGroup),
+                        limits.maxMessageSize(), "message size");
+            }
+            addParameterValue(event, placeholderLength, parameterIndex, parameters, results);
+            incBytesParsed(placeholderLength >= 0 ? placeholderLength : restBytes);
+        }
+
+        @SneakyThrows
+        private void addCountedValue(int event, int count, int parameterIndex, Parameter[] parameters,
+                Object[] result) {
+            if (count < 0) {
+                failed(type, INVALID_SIZE, bytesParsed);
+                throw new NumberFormatException("negative element count " + count + " at stream index " + bytesParsed
+                        + " for '" + pattern.source(event).pattern() + "'");
+            }
+            Type elementType = parameterIndex >= 0 ? listElementType(parameters[parameterIndex].getParameterizedType())
+                    : null;
+            if (elementType == null) {
+                throw new IllegalArgumentException(
+                        "element count requires a list parameter for '" + pattern.source(event).pattern() + "'");
             }
-            addParameterValue((String) event.value(), event.littleEndian(), placeholderLength, parameters, results);
-            incBytesParsed(placeholderLength);
+            result[parameterIndex] = parseList(-1, count, pattern.byteOrders[event], elementType);
         }
 
-        private void handleGroupStart(BytePatternEvent event) {
+        private void handleGroupStart(int event) {
             currentGroupStartEvent = event;
             maxLengthOutsideGroup = maxLength;
             bytesParsedOutsideGroup = bytesParsed;
 
-            LinearSizeValue size = event.size();
-            if (size.isVariable()) {
-                if (variables.containsKey(size.sizeVariable())) {
-                    maxLength = size.constantValue() + size.linearFactor() * variables.get(size.sizeVariable());
-                } else {
-                    maxLength -= bytesParsed;
-                }
+            int sizeVariable = pattern.sizeVariables[event];
+            if (sizeVariable == CONSTANT_SIZE) {
+                maxLength = pattern.sizes[event];
+            } else if (sizeVariable >= 0 && definedVariables[sizeVariable]) {
+                maxLength = pattern.sizes[event] + pattern.sizeFactors[event] * variables[sizeVariable];
             } else {
-                maxLength = size.constantValue();
+                maxLength -= bytesParsed;
             }
             bytesParsed = 0;
         }
 
-        private void handleGroupEnd(BytePatternEvent event) {
+        private void handleGroupEnd() {
             if (maxLength >= 0 && bytesParsed != maxLength) {
+                failed(type, GROUP_LENGTH_MISMATCH, bytesParsed + bytesParsedOutsideGroup);
                 throw new IllegalArgumentException("parsed " + bytesParsed + " bytes instead of expected " + maxLength);
             }
-            currentGroupStartEvent = null;
+            currentGroupStartEvent = -1;
             maxLength = maxLengthOutsideGroup;
-            bytesParsed = bytesParsedOutsideGroup;
+            bytesParsed += bytesParsedOutsideGroup;
         }
 
         @SneakyThrows
-        private void addParameterValue(String variableName, Boolean littleEndian, int placeholderLength,
-                Parameter[] parameters, Object[] result) {
-            if (variableName == null || variableName.isEmpty()) {
+        private void addParameterValue(int event, int placeholderLength, int parameterIndex, Parameter[] parameters,
+                Object[] result) {
+            int name = pattern.names[event];
+            int byteOrder = pattern.byteOrders[event];
+            if (name == ANONYMOUS && placeholderLength < 0 && isVarint(byteOrder)) {
+                readVarint(byteOrder);
+            } else if (name == ANONYMOUS) {
                 long skipped = input.skip(placeholderLength);
                 if (skipped < placeholderLength) {
-                    throw new EOFException("byte stream ends unexpectedly");
+                    throw unexpectedEnd("byte stream ends unexpectedly");
+                }
+            } else if (pattern.isChecksum(name)) {
+                long expected = ByteChecksums.mask(checksums.finish(event), placeholderLength);
+                long actual = toLong(placeholderLength, byteOrder);
+                if (actual != expected) {
+                    failed(type, CHECKSUM_MISMATCH, bytesParsed);
+                    throw new NumberFormatException("checksum 0x" + Long.toHexString(actual) + " at stream index "
+                            + bytesParsed + " does not match computed 0x" + Long.toHexString(expected) + " for '"
+                            + pattern.source(event).pattern() + "'");
                 }
-            } else if (variableName.startsWith("$")) {
-                Object value = parseValue(placeholderLength, littleEndian, Integer.TYPE);
+            } else if (pattern.isSizeVariable(name)) {
+                Object value = parseValue(placeholderLength, byteOrder, Integer.TYPE);
                 if (value == null) {
                     throw new IllegalArgumentException(
-                            "size variable '" + variableName + "' must have non-zero length itself.");
-                }
-                variables.put(variableName, (Integer) value);
-                if (currentGroupStartEvent != null) {
-                    LinearSizeValue groupSize = currentGroupStartEvent.size();
-                    String groupSizeVarName = groupSize.sizeVariable();
-                    if (variableName.equals(groupSizeVarName)) {
-                        maxLength = groupSize.constantValue() + groupSize.linearFactor() * (Integer) value;
-                    }
+                            "size variable '" + pattern.symbols[name] + "' must have non-zero length itself.");
+                }
+                variables[name] = (Integer) value;
+                definedVariables[name] = true;
+                if (!limits.isUnlimited()) {
+                    checkSizeLimits(name, (Integer) value);
                 }
+                if (currentGroupStartEvent >= 0 && pattern.sizeVariables[currentGroupStartEvent] == name) {
+                    maxLength = pattern.sizes[currentGroupStartEvent]
+                            + pattern.sizeFactors[currentGroupStartEvent] * (Integer) value;
+                }
+            } else if (parameterIndex >= 0) {
+                result[parameterIndex] = parseValue(placeholderLength, byteOrder,
+                        parameters[parameterIndex].getParameterizedType());
             } else {
-                for (int i = 0; i < parameters.length; i++) {
-                    if (variableName.equals(parameters[i].getName())) {
-                        result[i] = parseValue(placeholderLength, littleEndian, parameters[i].getParameterizedType());
-                        return;
-                    }
+                throw new NumberFormatException(
+                        "no parameter with name '" + pattern.symbols[name] + "' visible in constructor");
+            }
+        }
+
+        /**
+         * Checks the sizes a freshly parsed size variable implies for all placeholders and groups using it, before any
+         * of them is read.
+         */
+        private void checkSizeLimits(int symbol, int value) {
+            for (int event = 0; event < pattern.length; event++) {
+                if (pattern.sizeVariables[event] != symbol) {
+                    continue;
                 }
-                throw new NumberFormatException("no parameter with name '" + variableName + "' visible in constructor");
-            }
-        }
-
-        private Object parseValue(int size, Boolean littleEndian, Type genericType) throws Exception {
-            if (genericType instanceof ParameterizedType parameterizedType) {
-                if (parameterizedType.getRawType() instanceof Class<?> clazz
-                        && clazz.isAssignableFrom(ArrayList.class)) {
-                    Type[] genericArguments = parameterizedType.getActualTypeArguments();
-                    if (genericArguments.length == 1) {
-                        if (size == 0) {
-                            return List.of();
-                        }
-                        List<Object> list = new ArrayList<>();
-                        Type elementType = genericArguments[0];
-                        int stopAt = size >= 0 ? input.available() - size : 0;
-                        while (input.available() > stopAt) {
-                            list.add(parseValue(-1, littleEndian, elementType));
-                        }
-                        if (input.available() < stopAt) {
-                            throw new IllegalArgumentException("expected to read only " + size + " bytes, but read "
-                                    + (stopAt - input.available()) + " bytes too much.");
-                        }
-                        return list;
-                    }
+                long size = pattern.sizes[event] + (long) pattern.sizeFactors[event] * value;
+                if (pattern.opcodes[event] == GROUP_BEGIN) {
+                    checkLimit(event, size, limits.maxMessageSize(), "group size");
+                } else if (pattern.counted[event]) {
+                    checkLimit(event, value, limits.maxListCount(), "element count");
+                } else {
+                    checkLimit(event, size, limits.maxFieldLength(), "field length");
                 }
             }
+        }
+
+        private void checkLimit(int event, long value, int limit, String what) {
+            if (limit > 0 && value > limit) {
+                failed(type, LIMIT_EXCEEDED, bytesParsed);
+                throw new IllegalArgumentException(what + " " + value + " at stream index " + bytesParsed
+                        + " exceeds the limit of " + limit + " for '" + pattern.source(event).pattern() + "'");
+            }
+        }
+
+        /**
+         * checks the bytes read so far of a field that extends to the end of the stream, which no size announces
+         */
+        private void checkRestLength(int length) {
+            checkLimit(restEvent, length, limits.maxFieldLength(), "field length");
+            checkLimit(restEvent, (long) length + bytesParsed + Math.max(0, bytesParsedOutsideGroup),
+                    limits.maxMessageSize(), "message size");
+        }
+
+        private void checkListCount(int count) {
+            if (limits.maxListCount() > 0 && count > limits.maxListCount()) {
+                failed(type, LIMIT_EXCEEDED, bytesParsed);
+                throw new IllegalArgumentException(
+                        "list of " + type.getSimpleName() + " exceeds " + limits.maxListCount() + " elements");
+            }
+        }
+
+        private Object parseValue(int size, int byteOrder, Type genericType) throws Exception {
+            Type elementType = listElementType(genericType);
+            if (elementType != null) {
+                return parseList(size, -1, byteOrder, elementType);
+            }
             if (size == 0) {
                 return null;
             }
+            if (isVarint(byteOrder)) {
+                return fromVarint(size, byteOrder, genericType);
+            }
+            if (InputStream.class.equals(genericType)) {
+                return payloads.open(input, size, input, source);
+            }
+            if (ReadableByteChannel.class.equals(genericType)) {
+                return Channels.newChannel(payloads.open(input, size, input, source));
+            }
             if (genericType instanceof Class<?> type) {
-                type = findVariantType(type, input);
+                if (ByteBuffer.class.equals(type)) {
+                    return toByteBuffer(size);
+                }
+                if (String.class.equals(type)) {
+                    return toString(size);
+                }
                 if (type.isAssignableFrom(byte[].class)) {
                     return toByteArray(size);
                 }
@@ -314,27 +876,30 @@ public class ByteMapper {
                     return toBoolean(size);
                 }
                 if (Byte.TYPE.equals(type) || Byte.class.equals(type)) {
-                    return toByte(size, littleEndian);
+                    return toByte(size, byteOrder);
                 }
                 if (Short.TYPE.equals(type) || Short.class.equals(type)) {
-                    return toShort(size, littleEndian);
+                    return toShort(size, byteOrder);
                 }
                 if (Character.TYPE.equals(type) || Character.class.equals(type)) {
-                    return (char) toShort(size, littleEndian);
+                    return (char) toShort(size, byteOrder);
                 }
                 if (Integer.TYPE.equals(type) || Integer.class.equals(type)) {
-                    return toInteger(size, littleEndian);
+                    return toInteger(size, byteOrder);
                 }
                 if (Long.TYPE.equals(type) || Long.class.equals(type)) {
-                    return toLong(size, littleEndian);
+                    return toLong(size, byteOrder);
                 }
-                if (type.getAnnotation(ByteFormat.class) != null) {
+                if (type.isEnum()) {
+                    return toEnum(size, byteOrder, type);
+                }
+                if (type.getAnnotation(ByteFormat.class) != null || type.getAnnotation(ByteVariants.class) != null) {
                     return readBytes(input, size, type);
                 }
                 for (Constructor<?> constructor : type.getConstructors()) {
                     Parameter[] parameters = constructor.getParameters();
                     if (parameters.length == 1) {
-                        Object param = parseValue(size, littleEndian, parameters[0].getParameterizedType());
+                        Object param = parseValue(size, byteOrder, parameters[0].getParameterizedType());
                         return constructor.newInstance(param);
                     }
                     if (parameters.length == 0) {
@@ -346,7 +911,132 @@ public class ByteMapper {
                     + " is not primitive, has no simple constructor, and has no @ByteFormat annotation");
         }
 
-        private long toLong(int length, Boolean littleEndian) throws IOException {
+        /**
+         * Reads list elements until {@code size} bytes or {@code count} elements are consumed, or up to the end of the
+         * stream if both are negative. Leaves the number of consumed bytes in {@link #listBytes}.
+         */
+        private List<Object> parseList(int size, int count, int byteOrder, Type elementType) throws Exception {
+            listBytes = 0;
+            if (size == 0 || count == 0) {
+                return List.of();
+            }
+            if (isVarint(byteOrder)) {
+                return parseVarintList(size, count, byteOrder, elementType);
+            }
+            if (elementType instanceof Class<?> clazz) {
+                int elementSize = ByteValidator.naturalSize(clazz);
+                if (elementSize > 0 && (size >= 0 || count >= 0)) {
+                    return parseNumberList(size, count, byteOrder, clazz, elementSize);
+                }
+                if (clazz.getAnnotation(ByteFormat.class) != null || clazz.getAnnotation(ByteVariants.class) != null) {
+                    return parseRecordList(size, count, clazz);
+                }
+            }
+            if (count >= 0) {
+                throw new IllegalArgumentException("element count not supported for elements of " + elementType);
+            }
+            List<Object> list = new ArrayList<>();
+            if (size < 0) {
+                while (!atEnd()) {
+                    checkListCount(list.size() + 1);
+                    list.add(parseValue(-1, byteOrder, elementType));
+                }
+                return list;
+            }
+            // elements of other types do not report their length, only the stream can tell
+            int stopAt = input.available() - size;
+            while (input.available() > stopAt) {
+                checkListCount(list.size() + 1);
+                list.add(parseValue(-1, byteOrder, elementType));
+            }
+            if (input.available() < stopAt) {
+                throw new IllegalArgumentException("expected to read only " + size + " bytes, but read "
+                        + (stopAt - input.available()) + " bytes too much.");
+            }
+            listBytes = size;
+            return list;
+        }
+
+        private List<Object> parseNumberList(int size, int count, int byteOrder, Class<?> elementType, int elementSize)
+                throws IOException {
+            if (count < 0) {
+                if (size % elementSize != 0) {
+                    throw new IllegalArgumentException("expected " + size + " bytes to hold elements of " + elementSize
+                            + " bytes, but " + size % elementSize + " bytes remain.");
+                }
+                count = size / elementSize;
+                checkListCount(count);
+            }
+            int length = Math.multiplyExact(count, elementSize);
+            byte[] bytes = input.readNBytes(length);
+            if (bytes.length < length) {
+                throw unexpectedEnd("byte stream ends unexpectedly");
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            List<Object> list = new ArrayList<>(count);
+            for (int pos = 0; pos < length; pos += elementSize) {
+                list.add(box(ByteValidator.readLong(buffer, pos, elementSize, byteOrder), elementType));
+            }
+            listBytes = length;
+            return list;
+        }
+
+        private List<Object> parseVarintList(int size, int count, int encoding, Type elementType) throws Exception {
+            List<Object> list = new ArrayList<>(count >= 0 ? Math.min(count, MAX_PRESIZED_ELEMENTS) : 10);
+            int consumed = 0;
+            while (count >= 0 ? list.size() < count : size >= 0 ? consumed < size : !atEnd()) {
+                checkListCount(list.size() + 1);
+                list.add(fromVarint(-1, encoding, elementType));
+                consumed += varintBytes;
+            }
+            if (size >= 0 && consumed > size) {
+                throw new IllegalArgumentException(
+                        "expected to read only " + size + " bytes, but read " + (consumed - size) + " bytes too much.");
+            }
+            listBytes = consumed;
+            return list;
+        }
+
+        private List<Object> parseRecordList(int size, int count, Class<?> elementType) throws Exception {
+            ByteCodec codec = codecs.get(elementType);
+            int elementLength = codec.isVariantBase() ? -1 : codec.pattern().fixedLength();
+            int expected = count >= 0 ? count : elementLength > 0 ? size / elementLength : 0;
+            List<Object> list = new ArrayList<>(Math.min(expected, MAX_PRESIZED_ELEMENTS));
+            int consumed = 0;
+            while (count >= 0 ? list.size() < count : size >= 0 ? consumed < size : !atEnd()) {
+                checkListCount(list.size() + 1);
+                Decoded element = decode(input, size >= 0 ? size - consumed : -1, elementType);
+                list.add(element.value());
+                consumed += element.length();
+            }
+            listBytes = consumed;
+            return list;
+        }
+
+        private static Object box(long value, Class<?> type) {
+            if (type == Long.class) {
+                return value;
+            }
+            if (type == Integer.class) {
+                return (int) value;
+            }
+            if (type == Short.class) {
+                return (short) value;
+            }
+            return type == Character.class ? (Object) (char) value : (Object) (byte) value;
+        }
+
+        private boolean atEnd() throws IOException {
+            if (!input.markSupported()) {
+                return input.available() <= 0;
+            }
+            input.mark(1);
+            int b = input.read();
+            input.reset();
+            return b < 0;
+        }
+
+        private long toLong(int length, int byteOrder) throws IOException {
             long a, b, c, d, e, f, g;
             switch (length) {
             case 1 -> {
@@ -355,21 +1045,20 @@ public class ByteMapper {
             case 2 -> {
                 a = toUnsignedLong(readByte());
                 b = toUnsignedLong(readByte());
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 : a << 8 | b;
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 : a << 8 | b;
             }
             case 3 -> {
                 a = toUnsignedLong(readByte());
                 b = toUnsignedLong(readByte());
                 c = toUnsignedLong(readByte());
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 | c << 16 : a << 16 | b << 8 | c;
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 | c << 16 : a << 16 | b << 8 | c;
             }
             case 4 -> {
                 a = toUnsignedLong(readByte());
                 b = toUnsignedLong(readByte());
                 c = toUnsignedLong(readByte());
                 d = toUnsignedLong(readByte());
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 | c << 16 | d << 24
-                        : a << 24 | b << 16 | c << 8 | d;
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 | c << 16 | d << 24 : a << 24 | b << 16 | c << 8 | d;
             }
             case 5 -> {
                 a = toUnsignedLong(readByte());
@@ -377,7 +1066,7 @@ public class ByteMapper {
                 c = toUnsignedLong(readByte());
                 d = toUnsignedLong(readByte());
                 e = toUnsignedLong(readByte());
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 | c << 16 | d << 24 | e << 32
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 | c << 16 | d << 24 | e << 32
                         : a << 32 | b << 24 | c << 16 | d << 8 | e;
             }
             case 6 -> {
@@ -387,7 +1076,7 @@ public class ByteMapper {
                 d = toUnsignedLong(readByte());
                 e = toUnsignedLong(readByte());
                 f = toUnsignedLong(readByte());
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 | c << 16 | d << 24 | e << 32 | f << 40
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 | c << 16 | d << 24 | e << 32 | f << 40
                         : a << 40 | b << 32 | c << 24 | d << 16 | e << 8 | f;
             }
             case 7 -> {
@@ -398,11 +1087,11 @@ public class ByteMapper {
                 e = toUnsignedLong(readByte());
                 f = toUnsignedLong(readByte());
                 g = toUnsignedLong(readByte());
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 | c << 16 | d << 24 | e << 32 | f << 40 | g << 48
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 | c << 16 | d << 24 | e << 32 | f << 40 | g << 48
                         : a << 48 | b << 40 | c << 32 | d << 24 | e << 16 | f << 8 | g;
             }
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 long l = toUnsignedLong(readByte()) | toUnsignedLong(readByte()) << 8 | toUnsignedLong(readByte()) << 16
                         | toUnsignedLong(readByte()) << 24 | toUnsignedLong(readByte()) << 32
                         | toUnsignedLong(readByte()) << 40 | toUnsignedLong(readByte()) << 48
@@ -417,7 +1106,7 @@ public class ByteMapper {
                     | toUnsignedLong(readByte()) << 8 | toUnsignedLong(readByte());
         }
 
-        private int toInteger(int length, Boolean littleEndian) throws IOException {
+        private int toInteger(int length, int byteOrder) throws IOException {
             int a, b, c;
             switch (length) {
             case 1 -> {
@@ -426,16 +1115,16 @@ public class ByteMapper {
             case 2 -> {
                 a = readByte();
                 b = readByte();
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 : a << 8 | b;
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 : a << 8 | b;
             }
             case 3 -> {
                 a = readByte();
                 b = readByte();
                 c = readByte();
-                return Boolean.TRUE.equals(littleEndian) ? a | b << 8 | c << 16 : a << 16 | b << 8 | c;
+                return byteOrder == LITTLE_ENDIAN ? a | b << 8 | c << 16 : a << 16 | b << 8 | c;
             }
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 int i = readByte() | readByte() << 8 | readByte() << 16 | readByte() << 24;
                 input.skipNBytes(length - 4);
                 return i;
@@ -444,11 +1133,11 @@ public class ByteMapper {
             return readByte() << 24 | readByte() << 16 | readByte() << 8 | readByte();
         }
 
-        private short toShort(int length, Boolean littleEndian) throws IOException {
+        private short toShort(int length, int byteOrder) throws IOException {
             if (length == 1) {
                 return (short) readByte();
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 int s = readByte() | (readByte() << 8);
                 input.skipNBytes(length - 2);
                 return (short) s;
@@ -457,11 +1146,11 @@ public class ByteMapper {
             return (short) (readByte() << 8 | readByte());
         }
 
-        private byte toByte(int length, Boolean littleEndian) throws IOException {
+        private byte toByte(int length, int byteOrder) throws IOException {
             if (length == 1) {
                 return (byte) readByte();
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 int b = readByte();
                 input.skipNBytes(length - 1);
                 return (byte) b;
@@ -470,6 +1159,76 @@ public class ByteMapper {
             return (byte) readByte();
         }
 
+        private Object toEnum(int length, int byteOrder, Class<?> enumType) throws IOException {
+            return toEnum((int) toLong(length < 0 ? Integer.BYTES : length, byteOrder), enumType);
+        }
+
+        private Object toEnum(int code, Class<?> enumType) {
+            Object constant = ByteEnumCodes.of(enumType).decode(code);
+            if (constant == null) {
+                failed(type, UNKNOWN_CODE, bytesParsed);
+                throw new NumberFormatException("code 0x" + Integer.toHexString(code) + " at stream index "
+                        + bytesParsed + " is not mapped to any constant of " + enumType);
+            }
+            return constant;
+        }
+
+        /**
+         * Reads a varint, leaving its length in {@link #varintBytes}. One and two byte values take the fast path.
+         */
+        private long readVarint(int encoding) throws IOException {
+            int b = readByte();
+            long value;
+            if (b < 0x80) {
+                value = b;
+                varintBytes = 1;
+            } else {
+                int b2 = readByte();
+                value = b & 0x7F | (long) (b2 & 0x7F) << 7;
+                varintBytes = 2;
+                for (b = b2; b >= 0x80; varintBytes++) {
+                    if (varintBytes == ByteVarints.MAX_LENGTH) {
+                        failed(type, INVALID_SIZE, bytesParsed);
+                        throw new NumberFormatException("varint at stream index " + bytesParsed + " is longer than "
+                                + ByteVarints.MAX_LENGTH + " bytes");
+                    }
+                    b = readByte();
+                    value |= (long) (b & 0x7F) << 7 * varintBytes;
+                }
+            }
+            return encoding == ZIGZAG ? ByteVarints.decodeZigzag(value) : value;
+        }
+
+        private Object fromVarint(int size, int encoding, Type genericType) throws IOException {
+            long value = readVarint(encoding);
+            if (size >= 0 && varintBytes != size) {
+                throw new IllegalArgumentException(
+                        "expected a varint of " + size + " bytes, but read " + varintBytes + " bytes.");
+            }
+            if (Long.TYPE.equals(genericType) || Long.class.equals(genericType)) {
+                return value;
+            }
+            if (Integer.TYPE.equals(genericType) || Integer.class.equals(genericType)) {
+                return (int) value;
+            }
+            if (Short.TYPE.equals(genericType) || Short.class.equals(genericType)) {
+                return (short) value;
+            }
+            if (Character.TYPE.equals(genericType) || Character.class.equals(genericType)) {
+                return (char) value;
+            }
+            if (Byte.TYPE.equals(genericType) || Byte.class.equals(genericType)) {
+                return (byte) value;
+            }
+            if (Boolean.TYPE.equals(genericType) || Boolean.class.equals(genericType)) {
+                return value != 0;
+            }
+            if (genericType instanceof Class<?> enumType && enumType.isEnum()) {
+                return toEnum((int) value, enumType);
+            }
+            throw new IllegalArgumentException("type " + genericType + " cannot be read from a varint");
+        }
+
         private boolean toBoolean(int length) throws IOException {
             for (int i = 0; i < length; i++) {
                 if (readByte() != 0) {
@@ -480,7 +1239,56 @@ public class ByteMapper {
         }
 
         private byte[] toByteArray(int length) throws IOException {
-            return input.readNBytes(length);
+            return length >= 0 ? input.readNBytes(length) : readRest();
+        }
+
+        /**
+         * Reads up to the end of the stream in steps, so that a field outgrowing its limits fails before the rest is
+         * buffered. Leaves the number of bytes read in {@link #restBytes}.
+         */
+        private byte[] readRest() throws IOException {
+            ByteArrayOutputStream rest = new ByteArrayOutputStream();
+            byte[] step = new byte[REST_READ_STEP];
+            for (int count; (count = input.read(step)) >= 0;) {
+                rest.write(step, 0, count);
+                checkRestLength(rest.size());
+            }
+            restBytes = rest.size();
+            return rest.toByteArray();
+        }
+
+        private String toString(int length) throws IOException {
+            byte[] bytes;
+            int offset;
+            if (input instanceof ByteBufferInputStream source && source.hasArray()) {
+                if (length < 0 || length > source.available()) {
+                    throw unexpectedEnd("byte stream ends unexpectedly");
+                }
+                bytes = source.array();
+                offset = source.arrayPosition();
+                source.skip(length);
+            } else {
+                bytes = toByteArray(length);
+                offset = 0;
+                if (bytes.length < length) {
+                    throw unexpectedEnd("byte stream ends unexpectedly");
+                }
+            }
+            int end = offset + length;
+            while (end > offset && bytes[end - 1] == 0) {
+                end--;
+            }
+            return strings.decode(bytes, offset, end - offset);
+        }
+
+        private ByteBuffer toByteBuffer(int length) throws IOException {
+            if (input instanceof ByteBufferInputStream source) {
+                if (length < 0 || length > source.available()) {
+                    throw unexpectedEnd("byte stream ends unexpectedly");
+                }
+                return source.slice(length);
+            }
+            return ByteBuffer.wrap(toByteArray(length)).asReadOnlyBuffer();
         }
 
     }
@@ -489,25 +1297,44 @@ public class ByteMapper {
     private class OutputStreamProducer {
 
         @With
-        private record VariablePosition(int pos, int nrBytes, Boolean littleEndian, Integer content) {
+        private record VariablePosition(int pos, int nrBytes, int byteOrder, Integer content) {
         }
 
         private final ResettableByteArrayOutputStream output;
         private final int expectedSize;
         private int bytesWritten = 0;
-        private final Map<String, VariablePosition> sizeVariables = new HashMap<>();
+        private BytePattern pattern;
+        private Method[] accessors;
+        private VariablePosition[] sizeVariables;
+        private long recordPosition;
+        private long groupPosition;
+        private long[] checksumRanges;
 
         public int produce(Object object) {
+            return produce(object, object != null ? codecs.get(object.getClass()) : null);
+        }
+
+        public int produce(Object object, ByteCodec codec) {
             int groupStart = 0;
             if (object != null) {
-                for (BytePatternEvent event : getBytePattern(object.getClass())) {
-                    switch (event.event()) {
+                pattern = codec.pattern();
+                accessors = codec.accessors();
+                sizeVariables = new VariablePosition[pattern.symbols.length];
+                recordPosition = output.position();
+                for (int event = 0; event < pattern.length; event++) {
+                    switch (pattern.opcodes[event]) {
                     case CONSTANT_BYTES -> bytesWritten += handleConstantByte(event);
-                    case PLACEHOLDER -> bytesWritten += handlePlaceholder(event, object);
-                    case GROUP_BEGIN -> groupStart = bytesWritten;
+                    case PLACEHOLDER -> bytesWritten += handlePlaceholder(event, codec.accessors()[event], object);
+                    case GROUP_BEGIN -> {
+                        groupStart = bytesWritten;
+                        groupPosition = output.position();
+                    }
                     case GROUP_END -> handleGroupEnd(event, bytesWritten - groupStart);
                     }
                 }
+                if (checksumRanges != null) {
+                    storeChecksums();
+                }
             }
             if (expectedSize >= 0 && bytesWritten != expectedSize) {
                 throw new IllegalArgumentException(
@@ -516,121 +1343,272 @@ public class ByteMapper {
             return bytesWritten;
         }
 
-        private int handleConstantByte(BytePatternEvent event) {
-            LinearSizeValue size = event.size();
-            for (long l = (long) event.value(), i = size.constantValue(); i > 0; i--, l = l >> 8) {
+        private int handleConstantByte(int event) {
+            for (long l = pattern.constants[event], i = pattern.sizes[event]; i > 0; i--, l = l >> 8) {
                 output.write((int) l);
             }
-            return size.constantValue();
+            return pattern.sizes[event];
         }
 
         @SneakyThrows
-        private int handlePlaceholder(BytePatternEvent event, Object object) {
-            LinearSizeValue size = event.size();
-            final int placeholderLength = getPlaceholderLength(size);
-            String parameterName = (String) event.value();
+        private int handlePlaceholder(int event, Method accessor, Object object) {
+            final int placeholderLength = pattern.counted[event] ? -1 : getPlaceholderLength(event);
+            int name = pattern.names[event];
+            int byteOrder = pattern.byteOrders[event];
 
-            if (parameterName == null || parameterName.isEmpty()) {
-                return writeValue(placeholderLength, event.littleEndian(), 0);
+            if (name == ANONYMOUS) {
+                return writeValue(placeholderLength, byteOrder, 0);
+            }
+
+            if (pattern.isChecksum(name)) {
+                if (checksumRanges == null) {
+                    checksumRanges = new long[2 * pattern.length];
+                }
+                checksumRanges[2 * event] = pattern.checksumStarts[event] == 0 ? recordPosition : groupPosition;
+                checksumRanges[2 * event + 1] = output.position();
+                return writeValue(placeholderLength, byteOrder, 0);
             }
 
-            if (parameterName.startsWith("$")) {
+            if (pattern.isSizeVariable(name) && isVarint(byteOrder)) {
+                return writeVarintSizeVariable(event, name, object);
+            }
+
+            if (pattern.isSizeVariable(name)) {
                 int pos = output.count();
-                int writtenBytes = writeValue(placeholderLength, event.littleEndian(), 0);
-                sizeVariables.put(parameterName, new VariablePosition(pos, writtenBytes, event.littleEndian(), null));
+                int writtenBytes = writeValue(placeholderLength, byteOrder, 0);
+                sizeVariables[name] = new VariablePosition(pos, writtenBytes, byteOrder, null);
                 return writtenBytes;
             }
 
-            Method method = object.getClass().getMethod(parameterName);
-            int writtenBytes = writeValue(placeholderLength, event.littleEndian(), method.invoke(object));
+            String parameterName = pattern.symbols[name];
+            Method method = accessor != null ? accessor : object.getClass().getMethod(parameterName);
+            Object value = method.invoke(object);
+            int writtenBytes = writeValue(placeholderLength, byteOrder, value);
             if (placeholderLength >= 0 && writtenBytes != placeholderLength) {
                 throw new IllegalArgumentException("expected to produce " + placeholderLength + " bytes for parameter '"
                         + parameterName + "', but instead wrote " + writtenBytes + ".");
             }
-            if (size.isVariable()) {
-                storeVariable(size.sizeVariable(), (writtenBytes - size.constantValue()) / size.linearFactor());
+            if (pattern.counted[event]) {
+                storeVariable(event, value instanceof Collection<?> collection ? collection.size() : 0);
+            } else {
+                storeVariable(event, writtenBytes);
+            }
+            return writtenBytes;
+        }
+
+        /**
+         * A varint cannot be back-patched once its width is fixed, so its content is taken from the value it sizes
+         * before that is written. Group sizes are not known ahead and get back-patched into a padded varint instead.
+         */
+        private int writeVarintSizeVariable(int event, int name, Object object) throws Exception {
+            int byteOrder = pattern.byteOrders[event];
+            int placeholderLength = getPlaceholderLength(event);
+            for (int next = event + 1; next < pattern.length; next++) {
+                if (pattern.sizeVariables[next] != name) {
+                    continue;
+                }
+                if (ByteCodec.isParameter(pattern, next)) {
+                    Method method = accessors[next] != null ? accessors[next]
+                            : object.getClass().getMethod(pattern.symbols[pattern.names[next]]);
+                    Object value = method.invoke(object);
+                    if (value instanceof InputStream || value instanceof ReadableByteChannel) {
+                        break; // cannot be measured without consuming it
+                    }
+                    int content = pattern.counted[next]
+                            ? value instanceof Collection<?> collection ? collection.size() : 0
+                            : (measure(next, value) - pattern.sizes[next]) / pattern.sizeFactors[next];
+                    int writtenBytes = writeValue(placeholderLength, byteOrder, content);
+                    sizeVariables[name] = new VariablePosition(-1, writtenBytes, byteOrder, content);
+                    return writtenBytes;
+                }
+                break;
             }
+            int pos = output.count();
+            int writtenBytes = writeValue(placeholderLength >= 0 ? placeholderLength : ByteVarints.MAX_INT_LENGTH,
+                    byteOrder, 0);
+            sizeVariables[name] = new VariablePosition(pos, writtenBytes, byteOrder, null);
             return writtenBytes;
         }
 
+        private int measure(int event, Object value) throws IOException {
+            if (value instanceof byte[] bytes) {
+                return bytes.length;
+            }
+            if (value instanceof ByteBuffer buffer) {
+                return buffer.remaining();
+            }
+            OutputStreamProducer scratch = new OutputStreamProducer(new ResettableByteArrayOutputStream(), -1);
+            return scratch.writeValue(-1, pattern.byteOrders[event], value);
+        }
+
         @SneakyThrows
-        private void handleGroupEnd(BytePatternEvent event, int writtenBytes) {
-            LinearSizeValue size = event.size();
-            final int placeholderLength = getPlaceholderLength(size);
+        private void handleGroupEnd(int event, int writtenBytes) {
+            final int placeholderLength = getPlaceholderLength(event);
             if (placeholderLength >= 0 && writtenBytes != placeholderLength) {
                 throw new IllegalArgumentException("expected to produce " + placeholderLength
                         + " bytes for group, but instead wrote " + writtenBytes + ".");
             }
-            if (size.isVariable()) {
-                storeVariable(size.sizeVariable(), (writtenBytes - size.constantValue()) / size.linearFactor());
-            }
+            storeVariable(event, writtenBytes);
         }
 
-        private void storeVariable(String variable, int content) throws IOException {
-            VariablePosition sizePos = sizeVariables.get(variable);
-            if (sizePos != null) {
+        /**
+         * @param written
+         *            the number of bytes, or elements for an element count
+         */
+        private void storeVariable(int event, int written) throws IOException {
+            int variable = pattern.sizeVariables[event];
+            VariablePosition sizePos = variable >= 0 ? sizeVariables[variable] : null;
+            if (sizePos != null && sizePos.pos() >= 0) {
+                int content = pattern.counted[event] ? written
+                        : (written - pattern.sizes[event]) / pattern.sizeFactors[event];
                 output.reset(sizePos.pos());
-                writeValue(sizePos.nrBytes(), sizePos.littleEndian(), content);
-                sizeVariables.put(variable, sizePos.withContent(content));
+                writeValue(sizePos.nrBytes(), sizePos.byteOrder(), content);
+                sizeVariables[variable] = sizePos.withContent(content);
                 output.unreset();
             }
         }
 
-        private int getPlaceholderLength(LinearSizeValue size) {
-            if (!size.isVariable()) {
-                return size.constantValue();
+        private void storeChecksums() {
+            for (int event = 0; event < pattern.length; event++) {
+                if (ByteCodec.isChecksum(pattern, event)) {
+                    Checksum checksum = ByteChecksums.create(pattern.checksumAlgorithm(event));
+                    long end = checksumRanges[2 * event + 1];
+                    output.update(checksum, checksumRanges[2 * event], end);
+                    output.reset((int) end);
+                    writeLong(checksum.getValue(), pattern.sizes[event], pattern.byteOrders[event]);
+                    output.unreset();
+                }
+            }
+        }
+
+        private int getPlaceholderLength(int event) {
+            int variable = pattern.sizeVariables[event];
+            if (variable == CONSTANT_SIZE) {
+                return pattern.sizes[event];
             }
-            if ("?".equals(size.sizeVariable())) {
-                return expectedSize < 0 ? -1 : expectedSize - bytesWritten + size.constantValue();
+            if (variable == REST_SIZE) {
+                return expectedSize < 0 ? -1 : expectedSize - bytesWritten + pattern.sizes[event];
             }
-            if (!sizeVariables.containsKey(size.sizeVariable())) {
-                throw new IllegalArgumentException("size expression '" + size.sizeVariable()
-                        + "' does not match previously defined size variables " + sizeVariables.keySet() + ".");
+            if (variable == VARINT_SIZE) {
+                return -1;
             }
-            Integer varContent = sizeVariables.get(size.sizeVariable()).content();
-            return varContent != null ? varContent : -1;
+            if (sizeVariables[variable] == null) {
+                throw new IllegalArgumentException("size expression '" + pattern.symbols[variable]
+                        + "' does not match previously defined size variables " + definedSizeVariables() + ".");
+            }
+            Integer varContent = sizeVariables[variable].content();
+            return varContent != null ? pattern.sizes[event] + pattern.sizeFactors[event] * varContent : -1;
+        }
+
+        private List<String> definedSizeVariables() {
+            List<String> names = new ArrayList<>();
+            for (int variable = 0; variable < sizeVariables.length; variable++) {
+                if (sizeVariables[variable] != null) {
+                    names.add(pattern.symbols[variable]);
+                }
+            }
+            return names;
         }
 
-        private int writeValue(int length, Boolean littleEndian, Object value) throws IOException {
+        private int writeValue(int length, int byteOrder, Object value) throws IOException {
             if (value == null) {
                 return 0;
             }
+            if (isVarint(byteOrder) && !(value instanceof Collection<?>)) {
+                return writeVarint(varintValue(value), length, byteOrder);
+            }
             if (value instanceof byte[] bytes) {
                 return writeByteArray(bytes, length);
             }
+            if (value instanceof InputStream stream) {
+                return writeStream(stream, length);
+            }
+            if (value instanceof ReadableByteChannel channel) {
+                return writeStream(Channels.newInputStream(channel), length);
+            }
+            if (value instanceof ByteBuffer buffer) {
+                return writeByteBuffer(buffer, length);
+            }
+            if (value instanceof String string) {
+                return writeString(string, length);
+            }
             if (value instanceof Boolean bool) {
                 return writeBoolean(bool, length);
             }
             if (value instanceof Byte byteValue) {
-                return writeByte(byteValue, length, littleEndian);
+                return writeByte(byteValue, length, byteOrder);
             }
             if (value instanceof Short shortValue) {
-                return writeShort(shortValue, length, littleEndian);
+                return writeShort(shortValue, length, byteOrder);
             }
             if (value instanceof Character charValue) {
-                return writeShort((short) (char) charValue, length, littleEndian);
+                return writeShort((short) (char) charValue, length, byteOrder);
             }
             if (value instanceof Integer intValue) {
-                return writeInteger(intValue, length, littleEndian);
+                return writeInteger(intValue, length, byteOrder);
             }
             if (value instanceof Long longValue) {
-                return writeLong(longValue, length, littleEndian);
+                return writeLong(longValue, length, byteOrder);
+            }
+            if (value instanceof Enum<?> constant) {
+                return writeInteger(ByteEnumCodes.of(constant.getDeclaringClass()).encode(constant), length, byteOrder);
             }
             if (value instanceof Collection<?> collection) {
                 int sum = 0;
                 for (Object o : collection) {
-                    sum += writeValue(-1, littleEndian, o);
+                    sum += writeValue(-1, byteOrder, o);
                 }
                 return sum;
             }
             return writeBytes(output, value, length);
         }
 
-        private int writeLong(long value, int length, Boolean littleEndian) {
+        private static long varintValue(Object value) {
+            if (value instanceof Number number && !(value instanceof Float || value instanceof Double)) {
+                return number.longValue();
+            }
+            if (value instanceof Character charValue) {
+                return charValue;
+            }
+            if (value instanceof Boolean bool) {
+                return bool ? 1 : 0;
+            }
+            if (value instanceof Enum<?> constant) {
+                return ByteEnumCodes.of(constant.getDeclaringClass()).encode(constant);
+            }
+            throw new IllegalArgumentException("cannot write " + value.getClass() + " as varint");
+        }
+
+        /**
+         * writes the shortest encoding, or one padded with empty continuation bytes to {@code length} if given
+         */
+        private int writeVarint(long value, int length, int encoding) {
+            if (encoding == ZIGZAG) {
+                value = ByteVarints.encodeZigzag(value);
+            }
+            if (length < 0) {
+                length = ByteVarints.size(value);
+                if (length == 1) {
+                    output.write((int) value);
+                    return 1;
+                }
+            } else if (ByteVarints.size(value) > length) {
+                throw new IllegalArgumentException(
+                        "expected to produce " + length + " bytes, but varint " + value + " needs more.");
+            }
+            for (int i = 1; i < length; i++) {
+                output.write((int) value & 0x7F | 0x80);
+                value >>>= 7;
+            }
+            output.write((int) value);
+            return length;
+        }
+
+        private int writeLong(long value, int length, int byteOrder) {
             if (length < 0) {
                 length = 8;
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 int end = Math.min(length, 8);
                 for (int i = 0; i < end; i++) {
                     output.write((int) value);
@@ -651,11 +1629,11 @@ public class ByteMapper {
             return length;
         }
 
-        private int writeInteger(int value, int length, Boolean littleEndian) {
+        private int writeInteger(int value, int length, int byteOrder) {
             if (length < 0) {
                 length = 4;
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 int end = Math.min(length, 4);
                 for (int i = 0; i < end; i++) {
                     output.write(value);
@@ -676,14 +1654,14 @@ public class ByteMapper {
             return length;
         }
 
-        private int writeShort(short value, int length, Boolean littleEndian) {
+        private int writeShort(short value, int length, int byteOrder) {
             if (length < 0) {
                 length = 2;
             }
             if (length == 1) {
                 output.write(value);
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 output.write(value);
                 output.write(value >> 8);
                 for (int i = 2; i < length; i++) {
@@ -699,11 +1677,11 @@ public class ByteMapper {
             return length;
         }
 
-        private int writeByte(byte value, int length, Boolean littleEndian) {
+        private int writeByte(byte value, int length, int byteOrder) {
             if (length < 0) {
                 length = 1;
             }
-            if (Boolean.TRUE.equals(littleEndian)) {
+            if (byteOrder == LITTLE_ENDIAN) {
                 output.write(value);
                 for (int i = 1; i < length; i++) {
                     output.write(0);
@@ -734,6 +1712,52 @@ public class ByteMapper {
                 throw new IllegalArgumentException(
                         "byte array length " + value.length + " does not match format length " + length);
             }
+            output.write(ByteBuffer.wrap(value));
+            return length;
+        }
+
+        private int writeString(String value, int length) {
+            byte[] bytes = value.getBytes(strings.charset());
+            if (length < 0) {
+                length = bytes.length;
+            } else if (bytes.length > length) {
+                throw new IllegalArgumentException(
+                        "string of " + bytes.length + " bytes does not fit format length " + length);
+            }
+            output.write(bytes, 0, bytes.length);
+            for (int i = bytes.length; i < length; i++) {
+                output.write(0);
+            }
+            return length;
+        }
+
+        /**
+         * copies the stream up to its end, or exactly {@code length} bytes of it
+         */
+        private int writeStream(InputStream value, int length) throws IOException {
+            if (length < 0) {
+                return Math.toIntExact(value.transferTo(output));
+            }
+            byte[] chunk = new byte[Math.min(length, 1 << 13)];
+            for (int left = length; left > 0;) {
+                int count = value.read(chunk, 0, Math.min(left, chunk.length));
+                if (count < 0) {
+                    throw new IllegalArgumentException(
+                            "stream ends " + left + " bytes before the format length " + length);
+                }
+                output.write(chunk, 0, count);
+                left -= count;
+            }
+            return length;
+        }
+
+        private int writeByteBuffer(ByteBuffer value, int length) {
+            if (length < 0) {
+                length = value.remaining();
+            } else if (value.remaining() != length) {
+                throw new IllegalArgumentException(
+                        "byte buffer length " + value.remaining() + " does not match format length " + length);
+            }
             output.write(value);
             return length;
         }
@@ -0,0 +1,16 @@
+package de.creativecouple.validation.byte_mapper;
+
+public interface ByteMapperMetrics {
+
+    default void onRead(Class<?> type, int bytes) {
+    }
+
+    default void onWrite(Class<?> type, int bytes) {
+    }
+
+    default void onVariant(Class<?> baseType, Class<?> variant) {
+    }
+
+    default void onFailure(Class<?> type, ByteMappingFailure reason) {
+    }
+}
@@ -0,0 +1,141 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+
+/**
+ * Counts reads, writes, failures and variant hits per type. The statistics are kept with the types themselves, and
+ * types are referenced only weakly, so that the statistics of a type vanish together with its class loader.
+ */
+public class ByteMapperStatistics implements ByteMapperMetrics {
+
+    public static final int SIZE_BUCKETS = Integer.SIZE + 1;
+
+    private final Set<Class<?>> types = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final ClassValue<TypeStatistics> statistics = new ClassValue<>() {
+        @Override
+        protected TypeStatistics computeValue(Class<?> type) {
+            types.add(type);
+            return new TypeStatistics(type);
+        }
+    };
+
+    public Set<Class<?>> types() {
+        synchronized (types) {
+            return Set.copyOf(types);
+        }
+    }
+
+    public TypeStatistics of(Class<?> type) {
+        return statistics.get(type);
+    }
+
+    @Override
+    public void onRead(Class<?> type, int bytes) {
+        TypeStatistics typeStatistics = of(type);
+        typeStatistics.reads.increment();
+        typeStatistics.bytesRead.add(bytes);
+        typeStatistics.readSizes[sizeBucket(bytes)].increment();
+    }
+
+    @Override
+    public void onWrite(Class<?> type, int bytes) {
+        TypeStatistics typeStatistics = of(type);
+        typeStatistics.writes.increment();
+        typeStatistics.bytesWritten.add(bytes);
+        typeStatistics.writeSizes[sizeBucket(bytes)].increment();
+    }
+
+    @Override
+    public void onVariant(Class<?> baseType, Class<?> variant) {
+        of(baseType).variantHits.computeIfAbsent(variant, v -> new LongAdder()).increment();
+    }
+
+    @Override
+    public void onFailure(Class<?> type, ByteMappingFailure reason) {
+        of(type).failures[reason.ordinal()].increment();
+    }
+
+    static int sizeBucket(int bytes) {
+        return bytes <= 0 ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(bytes);
+    }
+
+    public static final class TypeStatistics {
+
+        private final Class<?> type;
+        private final LongAdder reads = new LongAdder();
+        private final LongAdder writes = new LongAdder();
+        private final LongAdder bytesRead = new LongAdder();
+        private final LongAdder bytesWritten = new LongAdder();
+        private final LongAdder[] readSizes = newAdders(SIZE_BUCKETS);
+        private final LongAdder[] writeSizes = newAdders(SIZE_BUCKETS);
+        private final LongAdder[] failures = newAdders(ByteMappingFailure.values().length);
+        private final Map<Class<?>, LongAdder> variantHits = Collections.synchronizedMap(new WeakHashMap<>());
+
+        private TypeStatistics(Class<?> type) {
+            this.type = type;
+        }
+
+        public Class<?> type() {
+            return type;
+        }
+
+        public long reads() {
+            return reads.sum();
+        }
+
+        public long writes() {
+            return writes.sum();
+        }
+
+        public long bytesRead() {
+            return bytesRead.sum();
+        }
+
+        public long bytesWritten() {
+            return bytesWritten.sum();
+        }
+
+        /**
+         * bucket 0 counts empty messages, bucket i counts sizes in [2^(i-1), 2^i)
+         */
+        public long[] readSizeHistogram() {
+            return sums(readSizes);
+        }
+
+        public long[] writeSizeHistogram() {
+            return sums(writeSizes);
+        }
+
+        public long failures(ByteMappingFailure reason) {
+            return failures[reason.ordinal()].sum();
+        }
+
+        public Map<Class<?>, Long> variantHits() {
+            synchronized (variantHits) {
+                return variantHits.entrySet().stream()
+                        .collect(Collectors.toUnmodifiableMap(Map.Entry::getKey, e -> e.getValue().sum()));
+            }
+        }
+
+        private static LongAdder[] newAdders(int count) {
+            LongAdder[] adders = new LongAdder[count];
+            for (int i = 0; i < count; i++) {
+                adders[i] = new LongAdder();
+            }
+            return adders;
+        }
+
+        private static long[] sums(LongAdder[] adders) {
+            long[] sums = new long[adders.length];
+            for (int i = 0; i < adders.length; i++) {
+                sums[i] = adders[i].sum();
+            }
+            return sums;
+        }
+    }
+}
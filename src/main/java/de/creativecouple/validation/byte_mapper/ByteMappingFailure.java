@@ -0,0 +1,6 @@
+package de.creativecouple.validation.byte_mapper;
+
+public enum ByteMappingFailure {
+    PATTERN_MISMATCH, UNEXPECTED_END, NO_VARIANT_MATCHED, GROUP_LENGTH_MISMATCH, INVALID_SIZE, CHECKSUM_MISMATCH,
+    UNKNOWN_CODE, LIMIT_EXCEEDED
+}
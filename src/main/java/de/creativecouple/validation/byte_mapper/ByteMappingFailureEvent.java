@@ -0,0 +1,33 @@
+package de.creativecouple.validation.byte_mapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("de.creativecouple.validation.byte_mapper.Failure")
+@Label("Byte Mapping Failure")
+@Category("Byte Mapper")
+@StackTrace(false)
+class ByteMappingFailureEvent extends Event {
+
+    @Label("Type")
+    Class<?> type;
+
+    @Label("Reason")
+    String reason;
+
+    @Label("Stream Index")
+    int streamIndex;
+
+    static void emit(Class<?> type, ByteMappingFailure reason, int streamIndex) {
+        ByteMappingFailureEvent event = new ByteMappingFailureEvent();
+        if (event.shouldCommit()) {
+            event.type = type;
+            event.reason = reason.name();
+            event.streamIndex = streamIndex;
+            event.commit();
+        }
+    }
+}
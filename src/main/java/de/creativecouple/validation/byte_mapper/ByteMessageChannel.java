@@ -0,0 +1,248 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.Builder;
+import lombok.SneakyThrows;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.lang.reflect.Method;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Exchanges records over a blocking {@link SocketChannel}. Received bytes are buffered and split into records by
+ * {@link ByteMapper#measure}, so a record type must not end in a top-level {@code {?}} placeholder. Sent records are
+ * encoded into a reused direct buffer and written in one go. Reading and writing are guarded by separate
+ * {@link ReentrantLock}s rather than monitors, so neither pins a virtual thread while it blocks on the socket.
+ * <p>
+ * A server receives requests in a loop and may send the responses from any thread in any order. A client may have many
+ * {@link #request requests} in flight; their responses are told apart by the record component named
+ * {@code correlation}, which both sides echo, and are read by a loop the {@code responseReader} runs.
+ */
+public final class ByteMessageChannel implements Closeable {
+
+    static final int DEFAULT_BUFFER_SIZE = 1 << 16;
+    static final int DEFAULT_MAX_MESSAGE_SIZE = 1 << 24;
+
+    private final SocketChannel channel;
+    private final ByteMapper mapper;
+    private final int bufferSize;
+    private final int maxMessageSize;
+    private final String correlation;
+    private final Class<?> responseType;
+    private final Executor responseReader;
+    private final ReentrantLock readLock = new ReentrantLock();
+    private final ReentrantLock writeLock = new ReentrantLock();
+    private final Map<Object, CompletableFuture<Object>> pending = new ConcurrentHashMap<>();
+    private final AtomicBoolean readerStarted = new AtomicBoolean();
+    private final ClassValue<Method> correlationAccessors = new ClassValue<>() {
+        @Override
+        protected Method computeValue(Class<?> type) {
+            try {
+                return type.getMethod(correlation);
+            } catch (NoSuchMethodException e) {
+                throw new IllegalArgumentException(type + " has no correlation component '" + correlation + "'");
+            }
+        }
+    };
+    private volatile Throwable readerFailure;
+    private ByteBuffer readBuffer = ByteBuffer.allocate(0);
+    private ByteBuffer writeBuffer;
+
+    /**
+     * @param channel
+     *            a connected channel in blocking mode
+     * @param mapper
+     *            to encode and decode records, a default one if null
+     * @param bufferSize
+     *            initial size of the send and receive buffers, 64 KiB by default
+     * @param maxMessageSize
+     *            largest record to send or receive, 16 MiB by default
+     * @param correlation
+     *            name of the component matching responses to requests, required for {@link #request}
+     * @param responseType
+     *            type of all responses, which may be {@link ByteVariants}, required for {@link #request}
+     * @param responseReader
+     *            runs the loop reading responses, a new daemon thread by default
+     */
+    @Builder
+    private ByteMessageChannel(SocketChannel channel, ByteMapper mapper, int bufferSize, int maxMessageSize,
+            String correlation, Class<?> responseType, Executor responseReader) {
+        if (!channel.isBlocking()) {
+            throw new IllegalArgumentException("channel must be in blocking mode");
+        }
+        if (bufferSize < 0 || maxMessageSize < 0) {
+            throw new IllegalArgumentException("negative buffer size");
+        }
+        this.channel = channel;
+        this.mapper = mapper != null ? mapper : new ByteMapper();
+        this.maxMessageSize = maxMessageSize > 0 ? maxMessageSize : DEFAULT_MAX_MESSAGE_SIZE;
+        this.bufferSize = Math.min(bufferSize > 0 ? bufferSize : DEFAULT_BUFFER_SIZE, this.maxMessageSize);
+        this.correlation = correlation;
+        this.responseType = responseType;
+        this.responseReader = responseReader != null ? responseReader : ByteMessageChannel::startDaemon;
+        this.writeBuffer = ByteBuffer.allocateDirect(this.bufferSize);
+    }
+
+    private static void startDaemon(Runnable runnable) {
+        Thread thread = new Thread(runnable, ByteMessageChannel.class.getSimpleName() + "-reader");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * Blocks until a whole record has been received. {@link ByteBuffer} components of the record stay valid, since
+     * buffered bytes are moved to a new buffer instead of being compacted.
+     *
+     * @return the next record, or null if the peer closed the connection after the previous one
+     */
+    public <T> T receive(Class<T> type) throws IOException {
+        readLock.lock();
+        try {
+            while (true) {
+                if (readBuffer.hasRemaining()) {
+                    int start = readBuffer.position();
+                    int length = mapper.measure(readBuffer, start, type);
+                    if (length >= 0) {
+                        readBuffer.position(start + length);
+                        return mapper.readBytes(readBuffer.slice(start, length), type);
+                    }
+                    if (length == ByteMapper.MALFORMED) {
+                        throw new IllegalArgumentException("received malformed " + type.getSimpleName() + ": "
+                                + mapper.validate(readBuffer, type));
+                    }
+                }
+                if (!fill()) {
+                    if (readBuffer.hasRemaining()) {
+                        throw new EOFException(
+                                "connection closed within a record of " + readBuffer.remaining() + " bytes");
+                    }
+                    return null;
+                }
+            }
+        } finally {
+            readLock.unlock();
+        }
+    }
+
+    /**
+     * @return false if the peer closed the connection
+     */
+    private boolean fill() throws IOException {
+        int pending = readBuffer.remaining();
+        if (readBuffer.limit() == readBuffer.capacity()) {
+            if (pending >= maxMessageSize) {
+                throw new IllegalArgumentException("received record exceeds " + maxMessageSize + " bytes");
+            }
+            ByteBuffer moved = ByteBuffer.allocate(Math.min(maxMessageSize, Math.max(bufferSize, 2 * pending)));
+            moved.put(readBuffer).flip();
+            readBuffer = moved;
+        }
+        int end = readBuffer.limit();
+        int read = channel.read(readBuffer.duplicate().limit(readBuffer.capacity()).position(end));
+        if (read < 0) {
+            return false;
+        }
+        readBuffer.limit(end + read);
+        return true;
+    }
+
+    public void send(Object message) throws IOException {
+        writeLock.lock();
+        try {
+            writeBuffer.clear();
+            while (true) {
+                try {
+                    mapper.writeBytes(writeBuffer, message);
+                    break;
+                } catch (BufferOverflowException e) {
+                    if (writeBuffer.capacity() >= maxMessageSize) {
+                        throw new IllegalArgumentException("sent record exceeds " + maxMessageSize + " bytes");
+                    }
+                    writeBuffer = ByteBuffer.allocateDirect(Math.min(maxMessageSize, 2 * writeBuffer.capacity()));
+                }
+            }
+            writeBuffer.flip();
+            while (writeBuffer.hasRemaining()) {
+                channel.write(writeBuffer);
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Sends the request and returns the response with the same correlation value once it arrives. Responses nobody
+     * waits for are dropped. The channel must not be {@link #receive received} from directly while requests are in
+     * flight.
+     */
+    public <R> CompletableFuture<R> request(Object message, Class<R> type) throws IOException {
+        if (correlation == null || responseType == null) {
+            throw new IllegalStateException("requests need a correlation component and a response type");
+        }
+        Object key = correlationOf(message);
+        CompletableFuture<Object> response = new CompletableFuture<>();
+        if (pending.putIfAbsent(key, response) != null) {
+            throw new IllegalArgumentException("a request with " + correlation + " " + key + " is in flight");
+        }
+        if (readerStarted.compareAndSet(false, true)) {
+            responseReader.execute(this::readResponses);
+        }
+        if (readerFailure != null) {
+            failPending(readerFailure);
+        }
+        try {
+            send(message);
+        } catch (IOException | RuntimeException e) {
+            pending.remove(key, response);
+            throw e;
+        }
+        return response.thenApply(type::cast);
+    }
+
+    private void readResponses() {
+        try {
+            for (Object response; (response = receive(responseType)) != null;) {
+                CompletableFuture<Object> request = pending.remove(correlationOf(response));
+                if (request != null) {
+                    request.complete(response);
+                }
+            }
+            failPending(new EOFException("connection closed by peer"));
+        } catch (Exception e) {
+            failPending(e);
+        }
+    }
+
+    private void failPending(Throwable failure) {
+        readerFailure = failure;
+        for (Object key : pending.keySet()) {
+            CompletableFuture<Object> request = pending.remove(key);
+            if (request != null) {
+                request.completeExceptionally(failure);
+            }
+        }
+    }
+
+    /**
+     * numeric correlation values are compared as {@code long}s, so that requests and responses may differ in width
+     */
+    @SneakyThrows
+    private Object correlationOf(Object message) {
+        Object value = correlationAccessors.get(message.getClass()).invoke(message);
+        return value instanceof Number number ? (Object) number.longValue() : value;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
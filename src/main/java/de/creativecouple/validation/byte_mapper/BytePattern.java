@@ -0,0 +1,159 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.util.Arrays;
+
+final class BytePattern {
+
+    static final int CONSTANT_BYTES = 0;
+    static final int PLACEHOLDER = 1;
+    static final int GROUP_BEGIN = 2;
+    static final int GROUP_END = 3;
+
+    static final int DEFAULT_ORDER = 0;
+    static final int BIG_ENDIAN = 1;
+    static final int LITTLE_ENDIAN = 2;
+    static final int VARINT = 3;
+    static final int ZIGZAG = 4;
+
+    static final int ANONYMOUS = -1;
+    static final int CONSTANT_SIZE = -1;
+    static final int REST_SIZE = -2;
+    static final int VARINT_SIZE = -3;
+
+    static final String REST_SIZE_NAME = "?";
+    static final String VARINT_SIZE_NAME = "~";
+
+    final int length;
+    final int[] opcodes;
+    final int[] byteOrders;
+    final long[] constants;
+    final int[] sizes;
+    final int[] sizeFactors;
+    final int[] sizeVariables;
+    final int[] names;
+    final boolean[] counted;
+    final String[] symbols;
+    final int[] checksumStarts;
+    private final Sources sources;
+
+    BytePattern(int length, int[] opcodes, int[] byteOrders, long[] constants, int[] sizes, int[] sizeFactors,
+            int[] sizeVariables, int[] names, boolean[] counted, String[] symbols, String format, int[] sourceStarts,
+            int[] sourceEnds) {
+        this.length = length;
+        this.opcodes = opcodes;
+        this.byteOrders = byteOrders;
+        this.constants = constants;
+        this.sizes = sizes;
+        this.sizeFactors = sizeFactors;
+        this.sizeVariables = sizeVariables;
+        this.names = names;
+        this.counted = counted;
+        this.symbols = symbols;
+        this.sources = new Sources(format, sourceStarts, sourceEnds);
+        this.checksumStarts = checksumStarts();
+    }
+
+    /**
+     * for each checksum placeholder the event at which its covered range begins: the group directly before it, or the
+     * record start; null if there are no checksums
+     */
+    private int[] checksumStarts() {
+        int[] starts = null;
+        int groupBegin = 0;
+        for (int event = 0; event < length; event++) {
+            if (opcodes[event] == GROUP_BEGIN) {
+                groupBegin = event;
+            } else if (opcodes[event] == PLACEHOLDER && names[event] != ANONYMOUS && isChecksum(names[event])) {
+                if (starts == null) {
+                    starts = new int[length];
+                    Arrays.fill(starts, -1);
+                }
+                starts[event] = event > 0 && opcodes[event - 1] == GROUP_END ? groupBegin : 0;
+            }
+        }
+        return starts;
+    }
+
+    boolean isVariable(int event) {
+        return sizeVariables[event] != CONSTANT_SIZE;
+    }
+
+    /**
+     * @return whether the placeholder holds LEB128 varints, either unsigned or zigzag-encoded signed
+     */
+    static boolean isVarint(int byteOrder) {
+        return byteOrder >= VARINT;
+    }
+
+    boolean isSizeVariable(int symbol) {
+        return symbols[symbol].charAt(0) == '$';
+    }
+
+    boolean isChecksum(int symbol) {
+        return symbols[symbol].charAt(0) == '#';
+    }
+
+    String checksumAlgorithm(int event) {
+        return symbols[names[event]].substring(1);
+    }
+
+    /**
+     * @return the number of bytes of the pattern if it has no variable sizes, -1 otherwise
+     */
+    int fixedLength() {
+        int fixedLength = 0;
+        for (int event = 0; event < length; event++) {
+            if (isVariable(event)) {
+                return -1;
+            }
+            if (opcodes[event] == CONSTANT_BYTES || opcodes[event] == PLACEHOLDER) {
+                fixedLength += sizes[event];
+            }
+        }
+        return fixedLength;
+    }
+
+    /**
+     * @return the number of bytes every match of this pattern consumes before its first variable-sized placeholder
+     */
+    int fixedPrefixLength() {
+        int prefixLength = 0;
+        for (int event = 0; event < length; event++) {
+            if (opcodes[event] == PLACEHOLDER && isVariable(event)) {
+                break;
+            }
+            if (opcodes[event] == CONSTANT_BYTES || opcodes[event] == PLACEHOLDER) {
+                prefixLength += sizes[event];
+            }
+        }
+        return prefixLength;
+    }
+
+    String name(int event) {
+        return names[event] == ANONYMOUS ? null : symbols[names[event]];
+    }
+
+    String sizeVariableName(int event) {
+        return switch (sizeVariables[event]) {
+        case CONSTANT_SIZE -> null;
+        case REST_SIZE -> REST_SIZE_NAME;
+        case VARINT_SIZE -> VARINT_SIZE_NAME;
+        default -> symbols[sizeVariables[event]];
+        };
+    }
+
+    LinearSizeValue size(int event) {
+        return new LinearSizeValue(sizes[event], sizeFactors[event], sizeVariableName(event));
+    }
+
+    BytePatternSource source(int event) {
+        return sources.get(event, opcodes[event]);
+    }
+
+    private record Sources(String format, int[] starts, int[] ends) {
+
+        BytePatternSource get(int event, int opcode) {
+            return BytePatterns.source(format, starts[event], ends[event], opcode == CONSTANT_BYTES);
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package de.creativecouple.validation.byte_mapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+@Name("de.creativecouple.validation.byte_mapper.PatternCompile")
+@Label("Byte Pattern Compile")
+@Category("Byte Mapper")
+@StackTrace(false)
+class BytePatternCompileEvent extends Event {
+
+    @Label("Type")
+    Class<?> type;
+
+    @Label("Pattern Events")
+    int patternEvents;
+
+    void commit(Class<?> type, int patternEvents) {
+        end();
+        if (shouldCommit()) {
+            this.type = type;
+            this.patternEvents = patternEvents;
+            commit();
+        }
+    }
+}
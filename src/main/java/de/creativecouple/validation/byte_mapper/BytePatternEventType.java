@@ -1,5 +0,0 @@
-package de.creativecouple.validation.byte_mapper;
-
-enum BytePatternEventType {
-    CONSTANT_BYTES, PLACEHOLDER, GROUP_BEGIN, GROUP_END
-}
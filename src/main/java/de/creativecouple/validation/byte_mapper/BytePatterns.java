@@ -3,28 +3,39 @@ package de.creativecouple.validation.byte_mapper;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.HashSet;
-import java.util.LinkedList;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.CONSTANT_BYTES;
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.GROUP_BEGIN;
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.GROUP_END;
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.PLACEHOLDER;
-import static de.creativecouple.validation.byte_mapper.LinearSizeValue.ONE;
-import static java.util.regex.Pattern.CASE_INSENSITIVE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.ANONYMOUS;
+import static de.creativecouple.validation.byte_mapper.BytePattern.BIG_ENDIAN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_BYTES;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.DEFAULT_ORDER;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_BEGIN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_END;
+import static de.creativecouple.validation.byte_mapper.BytePattern.LITTLE_ENDIAN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.PLACEHOLDER;
+import static de.creativecouple.validation.byte_mapper.BytePattern.REST_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.REST_SIZE_NAME;
+import static de.creativecouple.validation.byte_mapper.BytePattern.VARINT;
+import static de.creativecouple.validation.byte_mapper.BytePattern.VARINT_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.VARINT_SIZE_NAME;
+import static de.creativecouple.validation.byte_mapper.BytePattern.ZIGZAG;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 final class BytePatterns {
 
-    private static final Map<Class<?>, BytePatternEvent[]> bytePatternCache = new ConcurrentHashMap<>();
-
-    static BytePatternEvent[] getBytePattern(Class<?> clazz) {
-        return bytePatternCache.computeIfAbsent(clazz, type -> parse(getByteFormatString(type)));
+    static BytePattern compile(Class<?> type) {
+        BytePatternCompileEvent event = new BytePatternCompileEvent();
+        event.begin();
+        BytePattern pattern = parse(getByteFormatString(type));
+        event.commit(type, pattern.length);
+        return pattern;
     }
 
     private static String getByteFormatString(Class<?> type) {
@@ -35,218 +46,409 @@ final class BytePatterns {
         return byteFormat.value();
     }
 
-    private static final Pattern hexPattern = Pattern.compile("(?<newLine>\\n)" + "|(?<constantByte>[0-9A-F]{2})"
-            + "|(?<placeholder>hi|lo|[*][*])(?:[{](?:(?<placeholderConstantLength>\\d+)|(?<placeholderFlexibleLength>[^\\s,:+*/{}\\[\\]()-]+)(?:[*](?<placeholderMultiplier>\\d+))?)[}])?"
-            + "|:(?<parameter>[^\\s,:+*/{}\\[\\]()-]*)" + "|//[^\\n]*" + // comment
-            "|\\s" + // whitespace
-            "|(?<groupBegin>\\[)"
-            + "|(?<groupEnd>])[{](?:(?<groupEndConstantLength>\\d+)|(?<groupEndFlexibleLength>[^\\s,:+*/{}\\[\\]()-]+)(?:[*](?<groupEndMultiplier>\\d+))?)[}]"
-            + "|(?<illegalCharacter>.)", CASE_INSENSITIVE);
-
-    static BytePatternEvent[] parse(String hexString) {
+    static BytePattern parse(String hexString) {
         return (new BytePatternParser(hexString)).parse();
     }
 
+    static BytePatternSource source(String hexString, int start, int end, boolean constantBytesOnly) {
+        int lineStart = hexString.lastIndexOf('\n', start - 1) + 1;
+        int lineNo = 1;
+        for (int i = hexString.indexOf('\n'); i >= 0 && i < start; i = hexString.indexOf('\n', i + 1)) {
+            lineNo++;
+        }
+        StringBuilder pattern = new StringBuilder();
+        Scanner scanner = new Scanner(hexString, start, end);
+        while (scanner.next()) {
+            if (scanner.token == Scanner.CONSTANT_BYTE || !constantBytesOnly && scanner.token > Scanner.NEW_LINE) {
+                if (!pattern.isEmpty()) {
+                    pattern.append(' ');
+                }
+                pattern.append(hexString, scanner.tokenStart, scanner.pos);
+            }
+        }
+        return new BytePatternSource(hexString, lineNo, start - lineStart, pattern.toString());
+    }
+
+    private static class Scanner {
+        static final int SKIPPED = 0;
+        static final int NEW_LINE = 1;
+        static final int CONSTANT_BYTE = 2;
+        static final int PLACEHOLDER = 3;
+        static final int PARAMETER = 4;
+        static final int GROUP_BEGIN = 5;
+        static final int GROUP_END = 6;
+        static final int ILLEGAL_CHARACTER = 7;
+
+        private final String hexString;
+        private final int end;
+        int pos;
+        int tokenStart;
+        int token;
+        int constantByte;
+        int byteOrder;
+        int constantSize;
+        String sizeName;
+        int sizeMultiplier;
+        boolean counted;
+        String parameter;
+
+        Scanner(String hexString, int start, int end) {
+            this.hexString = hexString;
+            this.pos = start;
+            this.end = end;
+        }
+
+        boolean next() {
+            if (pos >= end) {
+                return false;
+            }
+            tokenStart = pos;
+            char c = hexString.charAt(pos++);
+            if (c == '\n') {
+                token = NEW_LINE;
+            } else if (isWhitespace(c)) {
+                token = SKIPPED;
+            } else if (hexDigit(c) >= 0 && pos < end && hexDigit(hexString.charAt(pos)) >= 0) {
+                token = CONSTANT_BYTE;
+                constantByte = hexDigit(c) << 4 | hexDigit(hexString.charAt(pos++));
+            } else if (c == '*' && at('*') || (c == 'h' || c == 'H') && at('i', 'I')
+                    || (c == 'l' || c == 'L') && at('o', 'O') || (c == 'v' || c == 'V') && at('u', 'U')
+                    || (c == 'v' || c == 'V') && at('z', 'Z')) {
+                token = PLACEHOLDER;
+                byteOrder = c == '*' ? DEFAULT_ORDER : c == 'h' || c == 'H' ? BIG_ENDIAN
+                        : c == 'l' || c == 'L' ? LITTLE_ENDIAN : at('u', 'U') ? VARINT : ZIGZAG;
+                pos++;
+                int placeholderEnd = pos;
+                if (!sizeExpression()) {
+                    pos = placeholderEnd;
+                    constantSize = byteOrder >= VARINT ? 0 : 1;
+                    sizeName = byteOrder >= VARINT ? VARINT_SIZE_NAME : null;
+                    sizeMultiplier = 1;
+                    counted = false;
+                }
+            } else if (c == ':') {
+                token = PARAMETER;
+                parameter = name();
+            } else if (c == '/' && at('/')) {
+                token = SKIPPED;
+                while (pos < end && hexString.charAt(pos) != '\n') {
+                    pos++;
+                }
+            } else if (c == '[') {
+                token = GROUP_BEGIN;
+            } else if (c == ']' && sizeExpression()) {
+                token = GROUP_END;
+            } else {
+                pos = tokenStart + 1;
+                token = ILLEGAL_CHARACTER;
+            }
+            return true;
+        }
+
+        private boolean at(char expected) {
+            return pos < end && hexString.charAt(pos) == expected;
+        }
+
+        private boolean at(char lower, char upper) {
+            return at(lower) || at(upper);
+        }
+
+        private boolean sizeExpression() {
+            if (!at('{')) {
+                return false;
+            }
+            pos++;
+            String expression = name();
+            counted = expression.length() > 1 && expression.charAt(0) == '#';
+            if (counted) {
+                expression = expression.substring(1);
+            }
+            if (expression.isEmpty() || counted && (at('*') || isDigit(expression.charAt(0)))) {
+                return false;
+            }
+            sizeName = null;
+            constantSize = 0;
+            sizeMultiplier = 1;
+            if (at('*')) {
+                pos++;
+                int multiplierStart = pos;
+                while (pos < end && isDigit(hexString.charAt(pos))) {
+                    pos++;
+                }
+                if (pos == multiplierStart) {
+                    return false;
+                }
+                sizeName = expression;
+                sizeMultiplier = Integer.parseInt(hexString, multiplierStart, pos, 10);
+            } else if (expression.chars().allMatch(Scanner::isDigit)) {
+                constantSize = Integer.parseInt(expression);
+            } else {
+                sizeName = expression;
+            }
+            if (!at('}')) {
+                return false;
+            }
+            pos++;
+            return true;
+        }
+
+        private String name() {
+            int nameStart = pos;
+            while (pos < end && isNameCharacter(hexString.charAt(pos))) {
+                pos++;
+            }
+            return hexString.substring(nameStart, pos);
+        }
+
+        private static int hexDigit(char c) {
+            if (c >= '0' && c <= '9') {
+                return c - '0';
+            }
+            if (c >= 'a' && c <= 'f') {
+                return c - 'a' + 10;
+            }
+            if (c >= 'A' && c <= 'F') {
+                return c - 'A' + 10;
+            }
+            return -1;
+        }
+
+        private static boolean isDigit(int c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private static boolean isWhitespace(char c) {
+            return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+        }
+
+        private static boolean isNameCharacter(char c) {
+            return !isWhitespace(c) && ",:+*/{}[]()-".indexOf(c) < 0;
+        }
+    }
+
     private static class BytePatternParser {
         private final String hexString;
-        private final Matcher matcher;
-        private final LinkedList<BytePatternEvent> result = new LinkedList<>();
+        private final Scanner scanner;
         private final Set<String> knownParameterNames = new HashSet<>();
-        private Integer unknownSizeEventIndex = null;
+        private final Map<String, Integer> symbols = new HashMap<>();
+        private final List<String> symbolNames = new ArrayList<>();
+        private int count = 0;
+        private int[] opcodes = new int[8];
+        private int[] byteOrders = new int[8];
+        private long[] constants = new long[8];
+        private int[] sizes = new int[8];
+        private int[] sizeFactors = new int[8];
+        private int[] sizeVariables = new int[8];
+        private int[] names = new int[8];
+        private boolean[] counted = new boolean[8];
+        private int[] sourceStarts = new int[8];
+        private int[] sourceEnds = new int[8];
+        private boolean openPlaceholder = false;
+        private int unknownSizeEventIndex = -1;
+        private int groupStartEventIndex = -1;
         private int lineNo = 1;
         private int lineStartIndex = 0;
-        private int linePos = 0;
-        private Integer groupStartEventIndex = null;
 
         public BytePatternParser(String hexString) {
             this.hexString = hexString;
-            this.matcher = hexPattern.matcher(hexString);
+            this.scanner = new Scanner(hexString, 0, hexString.length());
         }
 
-        private BytePatternEvent last(BytePatternEventType type) {
-            if (!result.isEmpty()) {
-                BytePatternEvent last = result.getLast();
-                if (last.event() == type) {
-                    return last;
+        public BytePattern parse() {
+            while (scanner.next()) {
+                switch (scanner.token) {
+                case Scanner.NEW_LINE -> handleNewLine();
+                case Scanner.CONSTANT_BYTE -> handleConstantByte();
+                case Scanner.PLACEHOLDER -> handlePlaceholder();
+                case Scanner.PARAMETER -> handleParameter();
+                case Scanner.GROUP_BEGIN -> handleGroupBegin();
+                case Scanner.GROUP_END -> handleGroupEnd();
+                case Scanner.ILLEGAL_CHARACTER -> handleUnknownCharacter();
+                default -> {
                 }
-            }
-            return null;
-        }
-
-        public BytePatternEvent[] parse() {
-            while (matcher.find()) {
-                linePos = matcher.start() - lineStartIndex;
-                if (matcher.group("newLine") != null) {
-                    handleNewLine();
-                } else if (matcher.group("constantByte") != null) {
-                    handleConstantByte();
-                } else if (matcher.group("placeholder") != null) {
-                    handlePlaceholder();
-                } else if (matcher.group("parameter") != null) {
-                    handleParameter();
-                } else if (matcher.group("groupBegin") != null) {
-                    handleGroupBegin();
-                } else if (matcher.group("groupEnd") != null) {
-                    handleGroupEnd();
-                } else if (matcher.group("illegalCharacter") != null) {
-                    handleUnknownCharacter();
                 }
             }
-            return result.toArray(new BytePatternEvent[0]);
+            return new BytePattern(count, trim(opcodes), trim(byteOrders), Arrays.copyOf(constants, count), trim(sizes),
+                    trim(sizeFactors), trim(sizeVariables), trim(names), Arrays.copyOf(counted, count),
+                    symbolNames.toArray(new String[0]), hexString, trim(sourceStarts), trim(sourceEnds));
+        }
+
+        private int[] trim(int[] array) {
+            return Arrays.copyOf(array, count);
         }
 
         private void handleNewLine() {
             lineNo++;
-            lineStartIndex = matcher.end();
+            lineStartIndex = scanner.pos;
         }
 
         private void handleConstantByte() {
-            int byteValue = Integer.parseInt(matcher.group("constantByte"), 16);
-            BytePatternEvent lastEvent = last(CONSTANT_BYTES);
-            result.add(lastEvent != null && lastEvent.size().constantValue() < 8
-                    ? addConstantByte(result.removeLast(), byteValue) : newConstantByte(byteValue));
+            int last = count - 1;
+            if (last >= 0 && opcodes[last] == CONSTANT_BYTES && sizes[last] < 8) {
+                constants[last] |= ((long) scanner.constantByte) << (sizes[last] * 8);
+                sizes[last]++;
+                sourceEnds[last] = scanner.pos;
+            } else {
+                int event = newEvent(CONSTANT_BYTES);
+                constants[event] = scanner.constantByte;
+                sizes[event] = 1;
+            }
+            openPlaceholder = false;
             reduceUnknownSizedPlaceholder(1);
         }
 
         private void reduceUnknownSizedPlaceholder(int value) {
-            if (unknownSizeEventIndex != null) {
-                var variableSizeEvent = result.get(unknownSizeEventIndex);
-                result.set(unknownSizeEventIndex, variableSizeEvent.withSize(variableSizeEvent.size().add(-value)));
+            if (unknownSizeEventIndex >= 0) {
+                sizes[unknownSizeEventIndex] -= value;
             }
         }
 
         private void handlePlaceholder() {
-            String placeholderExpr = matcher.group("placeholder");
-            Boolean littleEndian = placeholderExpr.equals("**") ? null : placeholderExpr.equalsIgnoreCase("lo");
-            String constantLength = matcher.group("placeholderConstantLength");
-            String variableName = matcher.group("placeholderFlexibleLength");
-            String multiplier = matcher.group("placeholderMultiplier");
-
-            BytePatternEvent placeholderEvent = newPlaceholder(littleEndian, constantLength, variableName, multiplier);
-            checkUnknownSizeEventIndex(placeholderEvent);
-            BytePatternEvent lastEvent = last(PLACEHOLDER);
-            result.add(lastEvent != null && lastEvent.value() == null
-                    ? addPlaceholder(result.removeLast(), placeholderEvent) : placeholderEvent);
+            LinearSizeValue size = scanner.sizeName == null ? new LinearSizeValue(scanner.constantSize, 0, null)
+                    : new LinearSizeValue(0, scanner.sizeMultiplier, scanner.sizeName);
+            if (scanner.counted && !knownParameterNames.contains(scanner.sizeName)) {
+                error("element count depending on unknown size variable '" + scanner.sizeName + "'");
+            }
+            if (BytePattern.isVarint(scanner.byteOrder) && unknownSizeEventIndex >= 0) {
+                error("a varint cannot follow the variable-sized parameter " + source(unknownSizeEventIndex)
+                        + ", as the varint's length depends on its content");
+            }
+            boolean unknownSize = !size.isDataDependent() && checkUnknownSize(size);
+            int event;
+            if (openPlaceholder && !scanner.counted && !counted[count - 1] && !BytePattern.isVarint(scanner.byteOrder)
+                    && !BytePattern.isVarint(byteOrders[count - 1])) {
+                event = count - 1;
+                setSize(event, size(event).add(size));
+                sourceEnds[event] = scanner.pos;
+            } else {
+                event = newEvent(PLACEHOLDER);
+                byteOrders[event] = scanner.byteOrder;
+                counted[event] = scanner.counted;
+                setSize(event, size);
+                openPlaceholder = true;
+            }
+            if (unknownSize) {
+                unknownSizeEventIndex = event;
+            }
         }
 
-        private void checkUnknownSizeEventIndex(BytePatternEvent placeholderEvent) {
-            LinearSizeValue size = placeholderEvent.size();
+        private boolean checkUnknownSize(LinearSizeValue size) {
             if (size.isVariable()) {
-                if (unknownSizeEventIndex != null) {
-                    error("there is already a variable-sized parameter " + result.get(unknownSizeEventIndex)
+                if (unknownSizeEventIndex >= 0) {
+                    error("there is already a variable-sized parameter " + source(unknownSizeEventIndex)
                             + ". A second one cannot exit at the same time in one pattern,\nConflicting");
                 }
-                if (!knownParameterNames.contains(size.sizeVariable())) {
-                    unknownSizeEventIndex = result.size();
-                }
-            } else {
-                reduceUnknownSizedPlaceholder(size.constantValue());
+                return !knownParameterNames.contains(size.sizeVariable());
             }
+            reduceUnknownSizedPlaceholder(size.constantValue());
+            return false;
         }
 
         private void handleParameter() {
-            String parameterName = matcher.group("parameter");
-            if (!knownParameterNames.add(parameterName)) {
+            String parameterName = scanner.parameter;
+            if (!knownParameterNames.add(parameterName) && !parameterName.isEmpty()) {
                 error("parameter '" + parameterName + "' occurred twice");
             }
-            BytePatternEvent lastEvent = last(PLACEHOLDER);
-            if (lastEvent != null && lastEvent.value() == null) {
-                result.add(addParameter(result.removeLast(), parameterName));
+            if (openPlaceholder) {
+                int event = count - 1;
+                names[event] = parameterName.isEmpty() ? ANONYMOUS : symbol(parameterName);
+                sourceEnds[event] = scanner.pos;
+                openPlaceholder = false;
             }
         }
 
         private void handleGroupBegin() {
-            setGroupStartEventIndex();
-            result.add(groupBegin());
-        }
-
-        private void setGroupStartEventIndex() {
-            if (groupStartEventIndex != null) {
+            if (groupStartEventIndex >= 0) {
                 error("only one level of group expression supported");
             }
-            groupStartEventIndex = result.size();
+            groupStartEventIndex = newEvent(GROUP_BEGIN);
+            openPlaceholder = false;
         }
 
         private void handleGroupEnd() {
-            int groupStartIndex = unsetGroupStartEventIndex();
-            String groupEndConstantLength = matcher.group("groupEndConstantLength");
-            String groupEndVarName = matcher.group("groupEndFlexibleLength");
-            String groupEndMultiplier = matcher.group("groupEndMultiplier");
-
+            if (groupStartEventIndex < 0) {
+                error("group end expression misses group start");
+            }
+            if (scanner.counted) {
+                error("group size cannot be an element count");
+            }
+            String groupEndVarName = scanner.sizeName;
             if (groupEndVarName != null && !knownParameterNames.contains(groupEndVarName)) {
                 error("group size depending on unknown size variable '" + groupEndVarName + "'");
             }
-
-            BytePatternEvent groupEndEvent = groupEnd(groupEndConstantLength, groupEndVarName, groupEndMultiplier);
-            result.add(groupEndEvent);
-            result.set(groupStartIndex, result.get(groupStartIndex).withSize(groupEndEvent.size()));
-
-            unknownSizeEventIndex = null;
-        }
-
-        private int unsetGroupStartEventIndex() {
-            if (groupStartEventIndex == null) {
-                error("group end expression misses group start");
-            }
-            int index = groupStartEventIndex;
-            groupStartEventIndex = null;
-            return index;
+            LinearSizeValue size = groupEndVarName == null ? new LinearSizeValue(scanner.constantSize, 0, null)
+                    : new LinearSizeValue(0, scanner.sizeMultiplier, groupEndVarName);
+            setSize(newEvent(GROUP_END), size);
+            setSize(groupStartEventIndex, size);
+            groupStartEventIndex = -1;
+            unknownSizeEventIndex = -1;
+            openPlaceholder = false;
         }
 
         private void handleUnknownCharacter() {
-            error("format error: unexpected token '" + matcher.group("illegalCharacter") + "'");
+            error("format error: unexpected token '" + hexString.charAt(scanner.tokenStart) + "'");
         }
 
         private void error(String problem) {
-            throw new IllegalArgumentException(
-                    problem + " at line " + lineNo + " pos " + linePos + " in pattern\n" + hexString);
-        }
-
-        private BytePatternEvent addConstantByte(BytePatternEvent lastEvent, int byteValue) {
-            BytePatternSource source = source();
-            return lastEvent.withSize(lastEvent.size().add(1))
-                    .withValue((long) lastEvent.value() | ((long) byteValue) << (lastEvent.size().constantValue() * 8))
-                    .withSource(lastEvent.source().append(source.pattern()));
+            throw new IllegalArgumentException(problem + " at line " + lineNo + " pos "
+                    + (scanner.tokenStart - lineStartIndex) + " in pattern\n" + hexString);
         }
 
-        private BytePatternEvent newConstantByte(int byteValue) {
-            return new BytePatternEvent(CONSTANT_BYTES, ONE, true, (long) byteValue, source());
-        }
-
-        private BytePatternEvent groupBegin() {
-            return new BytePatternEvent(GROUP_BEGIN, null, null, null, source());
-        }
-
-        private BytePatternEvent groupEnd(String constantSize, String varName, String varMultiplier) {
-            LinearSizeValue size = varName == null ? new LinearSizeValue(parse(constantSize, 1), 0, null)
-                    : new LinearSizeValue(0, parse(varMultiplier, 1), varName);
-            return new BytePatternEvent(GROUP_END, size, null, null, source());
-        }
-
-        private BytePatternEvent newPlaceholder(Boolean littleEndian, String constantSize, String varName,
-                String varMultiplier) {
-            LinearSizeValue size = varName == null ? new LinearSizeValue(parse(constantSize, 1), 0, null)
-                    : new LinearSizeValue(0, parse(varMultiplier, 1), varName);
-            return new BytePatternEvent(PLACEHOLDER, size, littleEndian, null, source());
+        private int newEvent(int opcode) {
+            if (count == opcodes.length) {
+                int capacity = count * 2;
+                opcodes = Arrays.copyOf(opcodes, capacity);
+                byteOrders = Arrays.copyOf(byteOrders, capacity);
+                constants = Arrays.copyOf(constants, capacity);
+                sizes = Arrays.copyOf(sizes, capacity);
+                sizeFactors = Arrays.copyOf(sizeFactors, capacity);
+                sizeVariables = Arrays.copyOf(sizeVariables, capacity);
+                names = Arrays.copyOf(names, capacity);
+                counted = Arrays.copyOf(counted, capacity);
+                sourceStarts = Arrays.copyOf(sourceStarts, capacity);
+                sourceEnds = Arrays.copyOf(sourceEnds, capacity);
+            }
+            int event = count++;
+            opcodes[event] = opcode;
+            sizeVariables[event] = CONSTANT_SIZE;
+            names[event] = ANONYMOUS;
+            sourceStarts[event] = scanner.tokenStart;
+            sourceEnds[event] = scanner.pos;
+            return event;
         }
 
-        private BytePatternEvent addPlaceholder(BytePatternEvent lastEvent, BytePatternEvent newEvent) {
-            return lastEvent.withSize(lastEvent.size().add(newEvent.size()))
-                    .withSource(lastEvent.source().append(newEvent.source().pattern()));
+        private LinearSizeValue size(int event) {
+            String sizeVariable = switch (sizeVariables[event]) {
+            case CONSTANT_SIZE -> null;
+            case REST_SIZE -> REST_SIZE_NAME;
+            case VARINT_SIZE -> VARINT_SIZE_NAME;
+            default -> symbolNames.get(sizeVariables[event]);
+            };
+            return new LinearSizeValue(sizes[event], sizeFactors[event], sizeVariable);
         }
 
-        private BytePatternEvent addParameter(BytePatternEvent lastEvent, String paramName) {
-            BytePatternSource source = source();
-            return lastEvent.withValue(paramName).withSource(lastEvent.source().append(source.pattern()));
+        private void setSize(int event, LinearSizeValue size) {
+            sizes[event] = size.constantValue();
+            if (size.isVariable()) {
+                sizeFactors[event] = size.linearFactor();
+                sizeVariables[event] = REST_SIZE_NAME.equals(size.sizeVariable()) ? REST_SIZE
+                        : size.isDataDependent() ? VARINT_SIZE : symbol(size.sizeVariable());
+            } else {
+                sizeFactors[event] = 0;
+                sizeVariables[event] = CONSTANT_SIZE;
+            }
         }
 
-        private BytePatternSource source() {
-            return new BytePatternSource(hexString, lineNo, linePos, matcher.group());
+        private int symbol(String name) {
+            return symbols.computeIfAbsent(name, key -> {
+                symbolNames.add(key);
+                return symbolNames.size() - 1;
+            });
         }
 
-        private static int parse(String expr, int fallback) {
-            return expr == null ? fallback : Integer.parseInt(expr);
+        private BytePatternSource source(int event) {
+            return BytePatterns.source(hexString, sourceStarts[event], sourceEnds[event],
+                    opcodes[event] == CONSTANT_BYTES);
         }
-
     }
 }
@@ -0,0 +1,188 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Hands out {@code InputStream} components as views on the source stream instead of reading them into memory, and
+ * remembers which sources still have such a payload pending: nothing else may be read from them until the payload is
+ * consumed, skipped or closed. The sources map to a {@link Pending} state that refers to no stream, so that a source
+ * and its abandoned payload can be collected together. Each pending source is also tracked by a weak reference that is
+ * dropped once the payload is done or the source has been collected, so that checks need no lock while none is left.
+ */
+final class BytePayloads {
+
+    private final Map<InputStream, Pending> pending = Collections.synchronizedMap(new WeakHashMap<>());
+    private final ReferenceQueue<InputStream> collected = new ReferenceQueue<>();
+    private final Set<Reference<InputStream>> references = ConcurrentHashMap.newKeySet();
+
+    /**
+     * @param length
+     *            of the payload, or -1 for the rest of the source
+     * @param sources
+     *            the streams through which the source is read, all blocked until the payload is done
+     */
+    InputStream open(InputStream input, long length, InputStream... sources) {
+        if (length == 0) {
+            return InputStream.nullInputStream();
+        }
+        Payload payload = new Payload(input, length);
+        for (InputStream source : sources) {
+            if (pending.put(source, payload.state) == null) {
+                WeakReference<InputStream> reference = new WeakReference<>(source, collected);
+                references.add(reference);
+                payload.sources.add(reference);
+            }
+        }
+        return payload;
+    }
+
+    /**
+     * @throws IllegalStateException
+     *             if a payload read from the source is pending
+     */
+    void check(InputStream source) {
+        if (pending() == 0) {
+            return;
+        }
+        Pending state = pending.get(source);
+        if (state != null) {
+            throw new IllegalStateException(
+                    "a payload of " + (state.remaining < 0 ? "unknown length" : state.remaining + " bytes")
+                            + " must be consumed, skipped or closed before reading on");
+        }
+    }
+
+    /**
+     * @return the number of sources with a payload pending, not counting those that have been collected
+     */
+    int pending() {
+        for (Reference<? extends InputStream> reference; (reference = collected.poll()) != null;) {
+            references.remove(reference);
+        }
+        return references.size();
+    }
+
+    private static final class Pending {
+
+        private long remaining;
+
+        Pending(long remaining) {
+            this.remaining = remaining;
+        }
+    }
+
+    private final class Payload extends InputStream {
+
+        private final InputStream input;
+        private final List<WeakReference<InputStream>> sources = new ArrayList<>(2);
+        private final Pending state;
+        private boolean done;
+
+        Payload(InputStream input, long remaining) {
+            this.input = input;
+            this.state = new Pending(remaining);
+        }
+
+        @Override
+        public int read() throws IOException {
+            if (state.remaining == 0) {
+                return -1;
+            }
+            int b = input.read();
+            if (b < 0) {
+                return ended();
+            }
+            consumed(1);
+            return b;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            if (state.remaining == 0) {
+                return -1;
+            }
+            int count = input.read(bytes, offset,
+                    state.remaining < 0 ? length : (int) Math.min(length, state.remaining));
+            if (count < 0) {
+                return ended();
+            }
+            consumed(count);
+            return count;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            long skipped = input.skip(state.remaining < 0 ? n : Math.min(n, state.remaining));
+            if (skipped > 0) {
+                consumed(skipped);
+            }
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            int available = input.available();
+            return state.remaining < 0 ? available : (int) Math.min(available, state.remaining);
+        }
+
+        /**
+         * skips what is left of the payload
+         */
+        @Override
+        public void close() throws IOException {
+            while (!done) {
+                if (skip(Long.MAX_VALUE) <= 0 && read() < 0) {
+                    break;
+                }
+            }
+        }
+
+        private void consumed(long count) {
+            if (state.remaining > 0) {
+                state.remaining -= count;
+                if (state.remaining == 0) {
+                    finish();
+                }
+            }
+        }
+
+        private int ended() throws EOFException {
+            if (state.remaining > 0) {
+                finish();
+                throw new EOFException("byte stream ends " + state.remaining + " bytes before the end of the payload");
+            }
+            state.remaining = 0;
+            finish();
+            return -1;
+        }
+
+        private void finish() {
+            if (!done) {
+                done = true;
+                for (WeakReference<InputStream> reference : sources) {
+                    InputStream source = reference.get();
+                    reference.clear();
+                    references.remove(reference);
+                    if (source != null) {
+                        pending.remove(source, state);
+                    }
+                }
+            }
+        }
+    }
+}
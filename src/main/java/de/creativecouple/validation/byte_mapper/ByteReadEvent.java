@@ -0,0 +1,37 @@
+package de.creativecouple.validation.byte_mapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("de.creativecouple.validation.byte_mapper.Read")
+@Label("Byte Mapper Read")
+@Category("Byte Mapper")
+@StackTrace(false)
+@Threshold("1 ms")
+class ByteReadEvent extends Event {
+
+    @Label("Type")
+    Class<?> type;
+
+    @Label("Variant")
+    Class<?> variant;
+
+    @Label("Bytes")
+    @DataAmount
+    int bytes;
+
+    void commit(Class<?> type, Class<?> variant, int bytes) {
+        end();
+        if (shouldCommit()) {
+            this.type = type;
+            this.variant = variant;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
@@ -0,0 +1,128 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Objects;
+
+import static de.creativecouple.validation.byte_mapper.ByteRecordLog.FLAG_LENGTH_PREFIXED;
+import static de.creativecouple.validation.byte_mapper.ByteRecordLog.INDEX_HEADER;
+import static java.nio.file.StandardOpenOption.READ;
+
+/**
+ * Reads records of an indexed {@link ByteRecordLog} by their number. Each lookup takes the record's offset from the
+ * mapped index and fetches the record with one positional read, so that any number of threads can share the file. With
+ * a sparse index the read covers the records from the preceding indexed one, which are skipped by their length prefix
+ * or by {@link ByteMapper#measure measuring} them.
+ * <p>
+ * The records are those the log had forced when the file was opened, and reads end at the forced bytes.
+ */
+public final class ByteRecordFile implements Closeable {
+
+    private final ByteMapper mapper;
+    private final FileChannel channel;
+    private final MappedByteBuffer index;
+    private final int interval;
+    private final boolean lengthPrefixed;
+    private final long records;
+    private final long entries;
+    private final long end;
+
+    private ByteRecordFile(ByteMapper mapper, FileChannel channel, MappedByteBuffer index, long records, long end) {
+        this.mapper = mapper;
+        this.channel = channel;
+        this.index = index;
+        this.interval = index.getInt(0);
+        this.lengthPrefixed = (index.getInt(4) & FLAG_LENGTH_PREFIXED) != 0;
+        this.records = records;
+        this.entries = (records + interval - 1) / interval;
+        this.end = end;
+    }
+
+    /**
+     * opens the log at {@code path} together with its {@link ByteRecordLog#indexPath index}
+     */
+    public static ByteRecordFile open(Path path, ByteMapper mapper) throws IOException {
+        FileChannel channel = FileChannel.open(path, READ);
+        try (FileChannel indexChannel = FileChannel.open(ByteRecordLog.indexPath(path), READ)) {
+            if (indexChannel.size() < INDEX_HEADER) {
+                throw new EOFException("truncated index header of " + path);
+            }
+            ByteBuffer header = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, INDEX_HEADER);
+            int interval = header.getInt(0);
+            long records = header.getLong(8);
+            long end = header.getLong(16);
+            if (interval == 0) {
+                throw new IllegalArgumentException("log " + path + " is not indexed");
+            }
+            if (interval < 0 || records < 0 || end < 0) {
+                throw new IllegalArgumentException("malformed index header of " + path);
+            }
+            long length = INDEX_HEADER + 8 * ((records + interval - 1) / interval);
+            if (length > indexChannel.size()) {
+                throw new EOFException("index of " + path + " misses entries");
+            }
+            MappedByteBuffer index = indexChannel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            return new ByteRecordFile(mapper != null ? mapper : new ByteMapper(), channel, index, records, end);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public long records() {
+        return records;
+    }
+
+    /**
+     * @return the {@code n}th record of the log, counted from 0
+     */
+    public <T> T get(long n, Class<T> type) throws IOException {
+        Objects.checkIndex(n, records);
+        long entry = n / interval;
+        long start = offset(entry);
+        ByteBuffer span = read(start, (entry + 1 < entries ? offset(entry + 1) : end) - start);
+        int pos = 0;
+        for (long skip = n % interval; skip > 0; skip--) {
+            pos += lengthPrefixed ? ByteRecordLog.LENGTH_PREFIX + span.getInt(pos) : measure(span, pos, type, n);
+        }
+        if (lengthPrefixed) {
+            int length = span.getInt(pos);
+            return mapper.readBytes(span.slice(pos + ByteRecordLog.LENGTH_PREFIX, length), type);
+        }
+        return mapper.readBytes(span.position(pos), type);
+    }
+
+    private long offset(long entry) {
+        return index.getLong(Math.toIntExact(INDEX_HEADER + 8 * entry));
+    }
+
+    private int measure(ByteBuffer span, int pos, Class<?> type, long n) {
+        int length = mapper.measure(span, pos, type);
+        if (length < 0) {
+            throw new IllegalArgumentException(
+                    "cannot skip to record " + n + ": preceding record at " + (length == ByteMapper.INCOMPLETE
+                            ? "end of file is incomplete" : "offset " + pos + " is malformed"));
+        }
+        return length;
+    }
+
+    private ByteBuffer read(long start, long length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(length));
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, start + buffer.position()) < 0) {
+                throw new EOFException("log ends before offset " + (start + length));
+            }
+        }
+        return buffer.flip();
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
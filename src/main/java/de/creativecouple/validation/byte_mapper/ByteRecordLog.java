@@ -0,0 +1,269 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.Builder;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+/**
+ * Appends encoded records to a file through a memory-mapped region, so that an append is a copy into the page cache
+ * instead of a system call. The region is mapped in chunks beyond the end of the file and remapped once it is full;
+ * {@link #close()} cuts the file back to the appended bytes. Records are optionally framed with a 4-byte big-endian
+ * length prefix so that the log can be scanned without knowing the record types.
+ * <p>
+ * Appended records are durable once {@link #force() forced}, which happens every {@code forceEveryRecords} appends, on
+ * the first append {@code forceIntervalMillis} after the last force, and on close.
+ * <p>
+ * A sidecar file next to the log, see {@link #indexPath}, begins with a header of the index interval, the framing flag,
+ * the number of forced records and the end of the forced bytes. A log that was not closed, and thus still ends in
+ * mapped but unwritten space, is cut back to that end when it is opened again. With an {@code indexInterval} the header
+ * is followed by the big-endian {@code long} start offsets of every such record, for {@link ByteRecordFile} to find
+ * records by number.
+ */
+public final class ByteRecordLog implements Closeable, Flushable {
+
+    static final long DEFAULT_CHUNK_SIZE = 1 << 24;
+    static final int LENGTH_PREFIX = 4;
+    static final int INDEX_HEADER = 24;
+    static final int INDEX_CHUNK_SIZE = 1 << 19;
+    static final int FLAG_LENGTH_PREFIXED = 1;
+
+    private final ByteMapper mapper;
+    private final FileChannel channel;
+    private final long chunkSize;
+    private final boolean lengthPrefixed;
+    private final int forceEveryRecords;
+    private final long forceIntervalNanos;
+    private final int indexInterval;
+    private final FileChannel indexChannel;
+    private MappedByteBuffer region;
+    private long regionStart;
+    private MappedByteBuffer indexHeader;
+    private MappedByteBuffer indexRegion;
+    private long indexRegionStart;
+    private long records;
+    private int unforcedRecords;
+    private long lastForce = System.nanoTime();
+
+    /**
+     * @param path
+     *            of the log, appended to if it exists
+     * @param mapper
+     *            to encode records, a default one if null
+     * @param chunkSize
+     *            number of bytes mapped at once, 16 MiB by default
+     * @param lengthPrefixed
+     *            whether each record is preceded by its length
+     * @param forceEveryRecords
+     *            number of appends after which the log is forced, 0 to not count appends
+     * @param forceIntervalMillis
+     *            time after which the next append forces the log, 0 to not force by time
+     * @param indexInterval
+     *            every how many records a start offset is indexed, 1 for all of them, 0 for no index
+     */
+    @Builder
+    private ByteRecordLog(Path path, ByteMapper mapper, long chunkSize, boolean lengthPrefixed, int forceEveryRecords,
+            long forceIntervalMillis, int indexInterval) throws IOException {
+        if (chunkSize < 0 || chunkSize > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("chunk size " + chunkSize + " out of range");
+        }
+        if (forceEveryRecords < 0 || forceIntervalMillis < 0) {
+            throw new IllegalArgumentException("negative force policy");
+        }
+        if (indexInterval < 0) {
+            throw new IllegalArgumentException("negative index interval " + indexInterval);
+        }
+        this.mapper = mapper != null ? mapper : new ByteMapper();
+        this.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+        this.lengthPrefixed = lengthPrefixed;
+        this.forceEveryRecords = forceEveryRecords;
+        this.forceIntervalNanos = TimeUnit.MILLISECONDS.toNanos(forceIntervalMillis);
+        this.indexInterval = indexInterval;
+        this.channel = FileChannel.open(path, CREATE, READ, WRITE);
+        try {
+            this.indexChannel = FileChannel.open(indexPath(path), CREATE, READ, WRITE);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+        try {
+            map(openIndex(), this.chunkSize);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            indexChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the sidecar file holding the forced end and the record offsets of the given log
+     */
+    public static Path indexPath(Path path) {
+        return path.resolveSibling(path.getFileName() + ".idx");
+    }
+
+    /**
+     * @return the end of the forced bytes, to which the log has been cut back
+     */
+    private long openIndex() throws IOException {
+        boolean created = indexChannel.size() == 0;
+        long end = channel.size();
+        if (created && end > 0 && indexInterval > 0) {
+            throw new IllegalArgumentException("cannot index the existing records of the log");
+        }
+        indexHeader = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER);
+        int flags = lengthPrefixed ? FLAG_LENGTH_PREFIXED : 0;
+        if (created) {
+            indexHeader.putInt(0, indexInterval).putInt(4, flags).putLong(8, 0).putLong(16, end);
+            indexHeader.force();
+        } else if (indexHeader.getInt(0) != indexInterval || indexHeader.getInt(4) != flags) {
+            throw new IllegalArgumentException("log of index interval " + indexHeader.getInt(0) + " and flags "
+                    + indexHeader.getInt(4) + " does not match the given settings");
+        } else if (indexHeader.getLong(16) > end) {
+            throw new EOFException("log ends before its forced end " + indexHeader.getLong(16));
+        } else if (indexHeader.getLong(16) < end) {
+            end = indexHeader.getLong(16);
+            channel.truncate(end);
+            channel.force(true);
+        }
+        records = indexHeader.getLong(8);
+        if (indexInterval > 0) {
+            mapIndex(INDEX_HEADER + 8 * ((records + indexInterval - 1) / indexInterval));
+        }
+        return end;
+    }
+
+    private void mapIndex(long start) throws IOException {
+        indexRegion = indexChannel.map(FileChannel.MapMode.READ_WRITE, start, INDEX_CHUNK_SIZE);
+        indexRegionStart = start;
+    }
+
+    /**
+     * @return the file offset at which the record, or its length prefix, begins
+     */
+    public synchronized long append(Object value) throws IOException {
+        ensureOpen();
+        long offset = size();
+        int prefix = lengthPrefixed ? LENGTH_PREFIX : 0;
+        while (true) {
+            int start = region.position();
+            try {
+                if (region.remaining() < prefix) {
+                    throw new BufferOverflowException();
+                }
+                region.position(start + prefix);
+                int length = mapper.writeBytes(region, value);
+                if (lengthPrefixed) {
+                    region.putInt(start, length);
+                }
+                break;
+            } catch (BufferOverflowException e) {
+                region.position(start);
+                grow();
+            } catch (Throwable e) {
+                region.position(start);
+                throw e;
+            }
+        }
+        if (indexRegion != null && records % indexInterval == 0) {
+            if (!indexRegion.hasRemaining()) {
+                indexRegion.force();
+                mapIndex(indexRegionStart + indexRegion.position());
+            }
+            indexRegion.putLong(offset);
+        }
+        records++;
+        unforcedRecords++;
+        if (forceEveryRecords > 0 && unforcedRecords >= forceEveryRecords
+                || forceIntervalNanos > 0 && System.nanoTime() - lastForce >= forceIntervalNanos) {
+            force();
+        }
+        return offset;
+    }
+
+    /**
+     * Maps a fresh chunk at the end of the log, or doubles the region if it has been too small for a single record.
+     */
+    private void grow() throws IOException {
+        long end = size();
+        long length = region.position() == 0 ? 2L * region.capacity() : chunkSize;
+        if (length > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("record exceeds the maximum region size");
+        }
+        if (unforcedRecords > 0) {
+            region.force();
+        }
+        map(end, length);
+    }
+
+    private void map(long start, long length) throws IOException {
+        region = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+        regionStart = start;
+    }
+
+    /**
+     * writes all appended records to the storage device
+     */
+    public synchronized void force() throws IOException {
+        ensureOpen();
+        region.force();
+        if (indexRegion != null) {
+            indexRegion.force();
+        }
+        indexHeader.putLong(16, size()).putLong(8, records);
+        indexHeader.force();
+        unforcedRecords = 0;
+        lastForce = System.nanoTime();
+    }
+
+    @Override
+    public void flush() throws IOException {
+        force();
+    }
+
+    /**
+     * @return the number of bytes appended to the log, including those present when it was opened
+     */
+    public synchronized long size() {
+        return regionStart + region.position();
+    }
+
+    /**
+     * @return the number of records appended since the log was created
+     */
+    public synchronized long records() {
+        return records;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!channel.isOpen()) {
+            return;
+        }
+        try {
+            force();
+            channel.truncate(size());
+            indexChannel.truncate(indexRegion != null ? indexRegionStart + indexRegion.position() : INDEX_HEADER);
+        } finally {
+            channel.close();
+            indexChannel.close();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (!channel.isOpen()) {
+            throw new IOException("record log is closed");
+        }
+    }
+}
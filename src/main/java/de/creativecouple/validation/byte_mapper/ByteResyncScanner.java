@@ -0,0 +1,130 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.UNEXPECTED_END;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_BYTES;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_BEGIN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.PLACEHOLDER;
+
+final class ByteResyncScanner {
+
+    private final ByteCodecs codecs;
+    private final ByteValidator validator;
+    private final ClassValue<SyncKey[]> keys = new ClassValue<>() {
+        @Override
+        protected SyncKey[] computeValue(Class<?> type) {
+            return syncKeys(codecs.get(type));
+        }
+    };
+
+    ByteResyncScanner(ByteCodecs codecs, ByteValidator validator) {
+        this.codecs = codecs;
+        this.validator = validator;
+    }
+
+    int resync(ByteBuffer buffer, int from, int limit, Class<?> type) {
+        SyncKey[] syncKeys = keys.get(type);
+        int[] next = new int[syncKeys.length];
+        ByteValidation result = new ByteValidation();
+        for (int start = from; start < limit;) {
+            int candidate = Integer.MAX_VALUE;
+            for (int k = 0; k < syncKeys.length; k++) {
+                if (next[k] < start) {
+                    next[k] = syncKeys[k].find(buffer, start, limit);
+                }
+                candidate = Math.min(candidate, next[k]);
+            }
+            if (candidate >= limit) {
+                return -1;
+            }
+            validator.validate(buffer, candidate, limit, type, result);
+            if (result.ok() || result.failure() == UNEXPECTED_END && result.offset() == limit) {
+                return candidate;
+            }
+            start = candidate + 1;
+        }
+        return -1;
+    }
+
+    private static SyncKey[] syncKeys(ByteCodec codec) {
+        List<SyncKey> result = new ArrayList<>();
+        if (codec.isVariantBase()) {
+            for (ByteCodec variant : codec.variants()) {
+                for (SyncKey key : syncKeys(variant)) {
+                    result.add(key);
+                }
+            }
+        } else {
+            result.add(syncKey(codec.pattern()));
+        }
+        return result.toArray(SyncKey[]::new);
+    }
+
+    /**
+     * the first run of constant bytes that sits at a fixed distance from the record start
+     */
+    private static SyncKey syncKey(BytePattern pattern) {
+        int offset = 0;
+        byte[] key = new byte[0];
+        for (int event = 0; event < pattern.length; event++) {
+            int opcode = pattern.opcodes[event];
+            if (opcode == CONSTANT_BYTES) {
+                int keyLength = key.length;
+                key = Arrays.copyOf(key, keyLength + pattern.sizes[event]);
+                for (long l = pattern.constants[event]; keyLength < key.length; keyLength++, l >>= 8) {
+                    key[keyLength] = (byte) l;
+                }
+            } else if (key.length > 0 || opcode == PLACEHOLDER && pattern.isVariable(event)) {
+                break;
+            } else if (opcode == PLACEHOLDER) {
+                offset += pattern.sizes[event];
+            } else if (opcode != GROUP_BEGIN) {
+                break;
+            }
+        }
+        return new SyncKey(offset, key);
+    }
+
+    private static final class SyncKey {
+        private final int offset;
+        private final byte[] key;
+        private final int[] shifts = new int[256];
+
+        SyncKey(int offset, byte[] key) {
+            this.offset = offset;
+            this.key = key;
+            Arrays.fill(shifts, key.length);
+            for (int i = 0; i < key.length - 1; i++) {
+                shifts[key[i] & 0xFF] = key.length - 1 - i;
+            }
+        }
+
+        /**
+         * Boyer-Moore-Horspool search for the next record start at or after {@code start}
+         */
+        int find(ByteBuffer buffer, int start, int limit) {
+            int last = key.length - 1;
+            if (last < 0) {
+                return start;
+            }
+            for (int i = start + offset; i + last < limit;) {
+                int b = buffer.get(i + last);
+                if (b == key[last]) {
+                    int j = last - 1;
+                    while (j >= 0 && buffer.get(i + j) == key[j]) {
+                        j--;
+                    }
+                    if (j < 0) {
+                        return i - offset;
+                    }
+                }
+                i += shifts[b & 0xFF];
+            }
+            return Integer.MAX_VALUE;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Decodes strings through a direct-mapped table of recently decoded values, so repeated values share one instance.
+ * Lookups are lock-free; concurrent decodes of colliding values simply overwrite each other's slot.
+ */
+final class ByteStringCache {
+
+    static final int MAX_CACHED_LENGTH = 64;
+
+    private final Charset charset;
+    private final Entry[] entries;
+    private final int mask;
+
+    ByteStringCache(Charset charset, int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("negative string cache size " + size);
+        }
+        this.charset = charset;
+        int capacity = size == 0 ? 0 : Math.max(2, Integer.highestOneBit(size - 1) << 1);
+        this.entries = capacity == 0 ? null : new Entry[capacity];
+        this.mask = capacity - 1;
+    }
+
+    Charset charset() {
+        return charset;
+    }
+
+    String decode(byte[] bytes, int offset, int length) {
+        if (entries == null || length > MAX_CACHED_LENGTH) {
+            return new String(bytes, offset, length, charset);
+        }
+        int hash = 1;
+        for (int i = offset, end = offset + length; i < end; i++) {
+            hash = 31 * hash + bytes[i];
+        }
+        int slot = (hash ^ hash >>> 16) & mask;
+        Entry entry = entries[slot];
+        if (entry != null && Arrays.equals(entry.bytes, 0, entry.bytes.length, bytes, offset, offset + length)) {
+            return entry.value;
+        }
+        byte[] key = Arrays.copyOfRange(bytes, offset, offset + length);
+        String value = new String(key, charset);
+        entries[slot] = new Entry(key, value);
+        return value;
+    }
+
+    private record Entry(byte[] bytes, String value) {
+    }
+}
@@ -0,0 +1,76 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.SneakyThrows;
+
+import java.io.IOException;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Stream;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ByteTypeScanner {
+
+    @SneakyThrows
+    static List<Class<?>> scan(ClassLoader classLoader, String packageName) {
+        String packagePath = packageName.replace('.', '/');
+        TreeSet<String> classNames = new TreeSet<>();
+        for (URL url : Collections.list(classLoader.getResources(packagePath))) {
+            switch (url.getProtocol()) {
+            case "file" -> collectFromDirectory(Path.of(url.toURI()), packageName, classNames);
+            case "jar" -> collectFromJar(url, packagePath, classNames);
+            default -> throw new IllegalArgumentException("cannot scan package " + packageName + " in " + url);
+            }
+        }
+        List<Class<?>> types = new ArrayList<>();
+        for (String className : classNames) {
+            Class<?> type;
+            try {
+                type = Class.forName(className, false, classLoader);
+            } catch (LinkageError e) {
+                continue; // not loadable in this class path, so it cannot be mapped either
+            }
+            if (type.isAnnotationPresent(ByteFormat.class) || type.isAnnotationPresent(ByteVariants.class)) {
+                types.add(type);
+            }
+        }
+        return types;
+    }
+
+    private static void collectFromDirectory(Path directory, String packageName, TreeSet<String> classNames)
+            throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.filter(file -> file.toString().endsWith(".class")).forEach(file -> {
+                String relativeName = directory.relativize(file).toString().replace(file.getFileSystem().getSeparator(),
+                        ".");
+                addClassName(packageName + '.' + relativeName, classNames);
+            });
+        }
+    }
+
+    private static void collectFromJar(URL url, String packagePath, TreeSet<String> classNames) throws IOException {
+        JarURLConnection connection = (JarURLConnection) url.openConnection();
+        connection.setUseCaches(false);
+        try (JarFile jarFile = connection.getJarFile()) {
+            jarFile.stream().map(JarEntry::getName)
+                    .filter(name -> name.startsWith(packagePath + '/') && name.endsWith(".class"))
+                    .forEach(name -> addClassName(name.replace('/', '.'), classNames));
+        }
+    }
+
+    private static void addClassName(String fileName, TreeSet<String> classNames) {
+        String className = fileName.substring(0, fileName.length() - ".class".length());
+        if (!className.endsWith("module-info") && !className.endsWith("package-info")) {
+            classNames.add(className);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package de.creativecouple.validation.byte_mapper;
+
+public final class ByteValidation {
+
+    private Class<?> type;
+    private ByteMappingFailure failure;
+    private int offset;
+    private int length;
+    private int required;
+
+    public boolean ok() {
+        return failure == null;
+    }
+
+    /**
+     * the validated type, or the matching variant for @ByteVariants types
+     */
+    public Class<?> type() {
+        return type;
+    }
+
+    public ByteMappingFailure failure() {
+        return failure;
+    }
+
+    /**
+     * index within the source where validation failed, or where the valid record starts
+     */
+    public int offset() {
+        return offset;
+    }
+
+    /**
+     * number of bytes the valid record occupies
+     */
+    public int length() {
+        return length;
+    }
+
+    /**
+     * index up to which the source must extend before an incomplete record can be complete
+     */
+    int required() {
+        return required;
+    }
+
+    ByteValidation requires(int end) {
+        this.required = end;
+        return this;
+    }
+
+    ByteValidation succeeded(Class<?> type, int offset, int length) {
+        this.type = type;
+        this.failure = null;
+        this.offset = offset;
+        this.length = length;
+        return this;
+    }
+
+    ByteValidation failed(Class<?> type, ByteMappingFailure failure, int offset) {
+        this.type = type;
+        this.failure = failure;
+        this.offset = offset;
+        this.length = -1;
+        this.required = offset + 1;
+        return this;
+    }
+
+    @Override
+    public String toString() {
+        return ok() ? "valid " + type.getSimpleName() + " at " + offset + " with " + length + " bytes"
+                : failure + " for " + type.getSimpleName() + " at " + offset;
+    }
+}
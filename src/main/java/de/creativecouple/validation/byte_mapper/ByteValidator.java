@@ -0,0 +1,549 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.RequiredArgsConstructor;
+
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.zip.Checksum;
+
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.CHECKSUM_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.GROUP_LENGTH_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.INVALID_SIZE;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.NO_VARIANT_MATCHED;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.PATTERN_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.UNEXPECTED_END;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.UNKNOWN_CODE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.ANONYMOUS;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_BYTES;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_BEGIN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_END;
+import static de.creativecouple.validation.byte_mapper.BytePattern.LITTLE_ENDIAN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.PLACEHOLDER;
+import static de.creativecouple.validation.byte_mapper.BytePattern.REST_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.VARINT_SIZE;
+import static de.creativecouple.validation.byte_mapper.BytePattern.ZIGZAG;
+import static de.creativecouple.validation.byte_mapper.BytePattern.isVarint;
+
+@RequiredArgsConstructor
+final class ByteValidator {
+
+    private static final long UNDEFINED = Long.MIN_VALUE;
+    private static final long[] NO_VARIABLES = new long[0];
+
+    private final ByteCodecs codecs;
+    private final int lookahead;
+
+    ByteValidation validate(ByteBuffer buffer, int offset, int limit, Class<?> type, ByteValidation result) {
+        ByteCodec codec = variant(buffer, offset, limit, codecs.get(type), result);
+        int end = codec == null ? -1 : walk(buffer, offset, limit, codec, result, true, null);
+        if (end >= 0) {
+            result.succeeded(codec.type(), offset, end - offset);
+        }
+        return result;
+    }
+
+    ByteValidation visit(ByteBuffer buffer, int offset, int limit, Class<?> type, ByteVisitor visitor,
+            ByteValidation result) {
+        ByteCodec base = codecs.get(type);
+        ByteCodec codec = variant(buffer, offset, limit, base, result);
+        if (codec != null && codec != base) {
+            visitor.onVariant(codec.type());
+        }
+        int end = codec == null ? -1 : walk(buffer, offset, limit, codec, result, true, visitor);
+        if (end >= 0) {
+            result.succeeded(codec.type(), offset, end - offset);
+        }
+        return result;
+    }
+
+    int measure(ByteBuffer buffer, int offset, int limit, Class<?> type) {
+        return measure(buffer, offset, limit, type, new ByteValidation());
+    }
+
+    /**
+     * leaves how far an incomplete record is known to extend in {@link ByteValidation#required()}
+     */
+    int measure(ByteBuffer buffer, int offset, int limit, Class<?> type, ByteValidation result) {
+        ByteCodec codec = variant(buffer, offset, limit, codecs.get(type), result);
+        int end = codec == null ? -1 : walk(buffer, offset, limit, codec, result, false, null);
+        if (end >= 0) {
+            return end - offset;
+        }
+        return result.failure() == UNEXPECTED_END && result.offset() == limit ? ByteMapper.INCOMPLETE
+                : ByteMapper.MALFORMED;
+    }
+
+    private int walk(ByteBuffer buffer, int pos, int limit, ByteCodec codec, ByteValidation result,
+            ByteVisitor visitor) {
+        ByteCodec base = codec;
+        codec = variant(buffer, pos, limit, codec, result);
+        if (codec == null) {
+            return -1;
+        }
+        if (visitor != null && base != codec) {
+            visitor.onVariant(codec.type());
+        }
+        return walk(buffer, pos, limit, codec, result, true, visitor);
+    }
+
+    /**
+     * @return the end index of the record starting at {@code pos}, or -1 after recording the failure in {@code result}
+     */
+    private int walk(ByteBuffer buffer, int pos, int limit, ByteCodec codec, ByteValidation result,
+            boolean checkContent, ByteVisitor visitor) {
+        BytePattern pattern = codec.pattern();
+        if (visitor != null) {
+            visitor.onRecordStart(codec.type());
+        }
+        long[] variables = pattern.symbols.length == 0 ? NO_VARIABLES : new long[pattern.symbols.length];
+        Arrays.fill(variables, UNDEFINED);
+        int recordStart = pos;
+        int end = limit;
+        int outerEnd = limit;
+        int groupEvent = -1;
+        int groupStart = -1;
+        int groupEnd = -1;
+        for (int event = 0; event < pattern.length; event++) {
+            switch (pattern.opcodes[event]) {
+            case CONSTANT_BYTES -> {
+                for (long l = pattern.constants[event], i = pattern.sizes[event]; i > 0; i--, l >>= 8, pos++) {
+                    if (pos >= end) {
+                        return pastEnd(result, codec, end, groupEnd, pos + 1L);
+                    }
+                    if (checkContent && (buffer.get(pos) & 0xFF) != ((int) l & 0xFF)) {
+                        return fail(result, codec, PATTERN_MISMATCH, pos);
+                    }
+                }
+            }
+            case GROUP_BEGIN -> {
+                groupEvent = event;
+                groupStart = pos;
+                outerEnd = end;
+                long size = size(pattern, event, variables, end - pos);
+                if (size >= 0) {
+                    if (pos + size > outerEnd) {
+                        return pastEnd(result, codec, outerEnd, groupEnd, pos + size);
+                    }
+                    end = pos + (int) size;
+                    groupEnd = end;
+                }
+                if (visitor != null) {
+                    visitor.onGroupStart();
+                }
+            }
+            case GROUP_END -> {
+                if (pos != end) {
+                    return fail(result, codec, GROUP_LENGTH_MISMATCH, pos);
+                }
+                groupEvent = -1;
+                groupEnd = -1;
+                end = outerEnd;
+                if (visitor != null) {
+                    visitor.onGroupEnd();
+                }
+            }
+            case PLACEHOLDER -> {
+                if (pattern.counted[event]) {
+                    pos = walkCounted(buffer, pos, end, codec, event, variables[pattern.sizeVariables[event]], result,
+                            visitor);
+                    if (pos < 0) {
+                        return failedInGroup(result, codec, groupEnd);
+                    }
+                    continue;
+                }
+                long length;
+                if (pattern.sizeVariables[event] == VARINT_SIZE) {
+                    length = ByteVarints.length(buffer, pos, end);
+                    if (length == -1) {
+                        return pastEnd(result, codec, end, groupEnd, end + 1L);
+                    }
+                } else {
+                    length = size(pattern, event, variables, end - pos);
+                }
+                if (length < 0 || length > Integer.MAX_VALUE) {
+                    return fail(result, codec, INVALID_SIZE, pos);
+                }
+                if (pos + length > end) {
+                    return pastEnd(result, codec, end, groupEnd, pos + length);
+                }
+                int name = pattern.names[event];
+                if (name == ANONYMOUS) {
+                    pos += (int) length;
+                } else if (pattern.isChecksum(name)) {
+                    if (checkContent) {
+                        int from = pattern.checksumStarts[event] == 0 ? recordStart : groupStart;
+                        Checksum checksum = ByteChecksums.create(pattern.checksumAlgorithm(event));
+                        checksum.update(buffer.slice(from, pos - from));
+                        if (ByteChecksums.mask(checksum.getValue(), (int) length) != readLong(buffer, pos, (int) length,
+                                pattern.byteOrders[event])) {
+                            return fail(result, codec, CHECKSUM_MISMATCH, pos);
+                        }
+                    }
+                    pos += (int) length;
+                } else if (pattern.isSizeVariable(name)) {
+                    if (length == 0) {
+                        return fail(result, codec, INVALID_SIZE, pos);
+                    }
+                    int value = (int) readNumber(buffer, pos, (int) length, pattern.byteOrders[event]);
+                    variables[name] = value;
+                    pos += (int) length;
+                    if (groupEvent >= 0 && pattern.sizeVariables[groupEvent] == name) {
+                        long groupSize = (long) pattern.sizes[groupEvent]
+                                + (long) pattern.sizeFactors[groupEvent] * value;
+                        if (groupSize < 0) {
+                            return fail(result, codec, INVALID_SIZE, pos);
+                        }
+                        if (groupStart + groupSize > outerEnd) {
+                            return pastEnd(result, codec, outerEnd, groupEnd, groupStart + groupSize);
+                        }
+                        end = groupStart + (int) groupSize;
+                        groupEnd = end;
+                    }
+                } else {
+                    int parameterIndex = codec.parameterIndices()[event];
+                    if (parameterIndex < 0) {
+                        throw new IllegalArgumentException(
+                                "no parameter with name '" + pattern.symbols[name] + "' visible in constructor");
+                    }
+                    Type type = codec.parameters()[parameterIndex].getParameterizedType();
+                    if (checkContent && !walkValue(buffer, pos, pos + (int) length, type, pattern.byteOrders[event],
+                            result, visitor, parameterIndex)) {
+                        return failedInGroup(result, codec, groupEnd);
+                    }
+                    pos += (int) length;
+                }
+            }
+            }
+        }
+        if (visitor != null) {
+            visitor.onRecordEnd(codec.type());
+        }
+        return pos;
+    }
+
+    /**
+     * @return the end index of {@code count} list elements starting at {@code pos}, or -1 after recording the failure
+     */
+    private int walkCounted(ByteBuffer buffer, int pos, int end, ByteCodec codec, int event, long count,
+            ByteValidation result, ByteVisitor visitor) {
+        int parameterIndex = codec.parameterIndices()[event];
+        Type type = parameterIndex >= 0 ? codec.parameters()[parameterIndex].getParameterizedType() : null;
+        if (!(listElementType(type) instanceof Class<?> elementType)) {
+            throw new IllegalArgumentException(
+                    "element count requires a list parameter for '" + codec.pattern().source(event).pattern() + "'");
+        }
+        if (count < 0) {
+            return fail(result, codec, INVALID_SIZE, pos);
+        }
+        if (isByteType(elementType)) {
+            ByteCodec element = codecs.get(elementType);
+            for (long i = 0; i < count && pos >= 0; i++) {
+                pos = walk(buffer, pos, end, element, result, visitor);
+            }
+            return pos;
+        }
+        int byteOrder = codec.pattern().byteOrders[event];
+        if (isVarint(byteOrder)) {
+            for (long i = 0; i < count; i++) {
+                int length = ByteVarints.length(buffer, pos, end);
+                if (length < 0) {
+                    return fail(result, codec, length == -1 ? UNEXPECTED_END : INVALID_SIZE, length == -1 ? end : pos);
+                }
+                if (visitor != null) {
+                    visitValue(buffer, pos, length, byteOrder, elementType, visitor, parameterIndex);
+                }
+                pos += length;
+            }
+            return pos;
+        }
+        int elementSize = naturalSize(elementType);
+        if (elementSize == 0) {
+            throw new IllegalArgumentException("element count not supported for elements of " + elementType);
+        }
+        if (pos + count * elementSize > end) {
+            return fail(result, codec, UNEXPECTED_END, end);
+        }
+        int listEnd = pos + (int) count * elementSize;
+        if (visitor != null) {
+            for (; pos < listEnd; pos += elementSize) {
+                visitValue(buffer, pos, elementSize, byteOrder, elementType, visitor, parameterIndex);
+            }
+        }
+        return listEnd;
+    }
+
+    private boolean walkValue(ByteBuffer buffer, int pos, int end, Type type, int byteOrder, ByteValidation result,
+            ByteVisitor visitor, int fieldId) {
+        if (listElementType(type) instanceof Class<?> elementType) {
+            if (isByteType(elementType)) {
+                ByteCodec element = codecs.get(elementType);
+                while (pos < end) {
+                    pos = walk(buffer, pos, end, element, result, visitor);
+                    if (pos < 0) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            if (isVarint(byteOrder)) {
+                while (pos < end) {
+                    int length = ByteVarints.length(buffer, pos, end);
+                    if (length < 0) {
+                        result.failed(elementType, length == -1 ? UNEXPECTED_END : INVALID_SIZE,
+                                length == -1 ? end : pos);
+                        return false;
+                    }
+                    if (visitor != null) {
+                        visitValue(buffer, pos, length, byteOrder, elementType, visitor, fieldId);
+                    }
+                    pos += length;
+                }
+                return true;
+            }
+            int elementSize = naturalSize(elementType);
+            if (elementSize > 0 && (end - pos) % elementSize != 0) {
+                result.failed(elementType, UNEXPECTED_END, end);
+                return false;
+            }
+            if (visitor != null && elementSize > 0) {
+                for (; pos < end; pos += elementSize) {
+                    visitValue(buffer, pos, elementSize, byteOrder, elementType, visitor, fieldId);
+                }
+            }
+            return true;
+        }
+        if (type instanceof Class<?> clazz && isByteType(clazz)) {
+            return pos == end || walk(buffer, pos, end, codecs.get(clazz), result, visitor) >= 0;
+        }
+        if (type instanceof Class<?> clazz && clazz.isEnum() && pos < end) {
+            int code = (int) readNumber(buffer, pos, end - pos, byteOrder);
+            if (ByteEnumCodes.of(clazz).decode(code) == null) {
+                result.failed(clazz, UNKNOWN_CODE, pos);
+                return false;
+            }
+            if (visitor != null) {
+                visitor.onInt(fieldId, code);
+            }
+            return true;
+        }
+        if (visitor != null && pos < end && type instanceof Class<?> clazz) {
+            visitValue(buffer, pos, end - pos, byteOrder, clazz, visitor, fieldId);
+        }
+        return true;
+    }
+
+    private static void visitValue(ByteBuffer buffer, int pos, int length, int byteOrder, Class<?> type,
+            ByteVisitor visitor, int fieldId) {
+        if (isVarint(byteOrder)) {
+            long value = readNumber(buffer, pos, length, byteOrder);
+            if (type == Long.TYPE || type == Long.class) {
+                visitor.onLong(fieldId, value);
+            } else if (type == Short.TYPE || type == Short.class) {
+                visitor.onInt(fieldId, (short) value);
+            } else if (type == Character.TYPE || type == Character.class) {
+                visitor.onInt(fieldId, (char) value);
+            } else if (type == Byte.TYPE || type == Byte.class) {
+                visitor.onInt(fieldId, (byte) value);
+            } else if (type == Boolean.TYPE || type == Boolean.class) {
+                visitor.onInt(fieldId, value != 0 ? 1 : 0);
+            } else {
+                visitor.onInt(fieldId, (int) value);
+            }
+        } else if (type == Long.TYPE || type == Long.class) {
+            visitor.onLong(fieldId, readLong(buffer, pos, length, byteOrder));
+        } else if (type == Integer.TYPE || type == Integer.class) {
+            visitor.onInt(fieldId, readInt(buffer, pos, length, byteOrder));
+        } else if (type == Short.TYPE || type == Short.class) {
+            visitor.onInt(fieldId,
+                    (short) readInt(buffer, pos + lowBytes(length, 2, byteOrder), Math.min(length, 2), byteOrder));
+        } else if (type == Character.TYPE || type == Character.class) {
+            visitor.onInt(fieldId,
+                    (char) readInt(buffer, pos + lowBytes(length, 2, byteOrder), Math.min(length, 2), byteOrder));
+        } else if (type == Byte.TYPE || type == Byte.class) {
+            visitor.onInt(fieldId, buffer.get(pos + lowBytes(length, 1, byteOrder)));
+        } else if (type == Boolean.TYPE || type == Boolean.class) {
+            boolean value = false;
+            for (int i = 0; i < length && !value; i++) {
+                value = buffer.get(pos + i) != 0;
+            }
+            visitor.onInt(fieldId, value ? 1 : 0);
+        } else {
+            visitor.onBytes(fieldId, buffer, pos, length);
+        }
+    }
+
+    private static int lowBytes(int length, int bytes, int byteOrder) {
+        return byteOrder == LITTLE_ENDIAN ? 0 : Math.max(0, length - bytes);
+    }
+
+    static final int NO_MATCH = 0;
+    static final int MATCH = 1;
+    static final int NEED_MORE = 2;
+
+    /**
+     * @return the variant to use at {@code pos}, or null after recording the failure in {@code result}
+     */
+    private ByteCodec variant(ByteBuffer buffer, int pos, int limit, ByteCodec base, ByteValidation result) {
+        if (!base.isVariantBase()) {
+            return base;
+        }
+        for (ByteCodec variant : base.variants()) {
+            switch (prefixMatches(buffer, pos, limit, variant.pattern(), lookahead)) {
+            case MATCH -> {
+                return variant;
+            }
+            case NEED_MORE -> {
+                result.failed(base.type(), UNEXPECTED_END, limit);
+                return null;
+            }
+            default -> {
+            }
+            }
+        }
+        result.failed(base.type(), NO_VARIANT_MATCHED, pos);
+        return null;
+    }
+
+    /**
+     * compares the constant bytes among the first {@code lookahead} bytes of the pattern
+     */
+    static int prefixMatches(ByteBuffer buffer, int pos, int limit, BytePattern pattern, int lookahead) {
+        int testLimit = pos + lookahead;
+        for (int event = 0; event < pattern.length && pos < testLimit; event++) {
+            switch (pattern.opcodes[event]) {
+            case CONSTANT_BYTES -> {
+                for (long l = pattern.constants[event], i = pattern.sizes[event]; i > 0
+                        && pos < testLimit; i--, l >>= 8, pos++) {
+                    if (pos >= limit) {
+                        return NEED_MORE;
+                    }
+                    if ((buffer.get(pos) & 0xFF) != ((int) l & 0xFF)) {
+                        return NO_MATCH;
+                    }
+                }
+            }
+            case PLACEHOLDER -> {
+                if (pattern.isVariable(event)) {
+                    return MATCH;
+                }
+                pos += pattern.sizes[event];
+            }
+            default -> {
+            }
+            }
+        }
+        return MATCH;
+    }
+
+    private static long size(BytePattern pattern, int event, long[] variables, int rest) {
+        int sizeVariable = pattern.sizeVariables[event];
+        if (sizeVariable == CONSTANT_SIZE) {
+            return pattern.sizes[event];
+        }
+        if (sizeVariable == REST_SIZE) {
+            return pattern.opcodes[event] == PLACEHOLDER && pattern.sizeFactors[event] == 1
+                    ? rest + pattern.sizes[event] : -1;
+        }
+        if (variables[sizeVariable] == UNDEFINED) {
+            return pattern.opcodes[event] == GROUP_BEGIN ? -1 : Long.MIN_VALUE;
+        }
+        return pattern.sizes[event] + pattern.sizeFactors[event] * variables[sizeVariable];
+    }
+
+    private static int fail(ByteValidation result, ByteCodec codec, ByteMappingFailure failure, int pos) {
+        result.failed(codec.type(), failure, pos);
+        return -1;
+    }
+
+    /**
+     * a group of declared size lies wholly within the data, so content running past its end is malformed rather than
+     * incomplete
+     */
+    private static int pastEnd(ByteValidation result, ByteCodec codec, int end, int groupEnd, long required) {
+        if (end == groupEnd) {
+            return fail(result, codec, GROUP_LENGTH_MISMATCH, end);
+        }
+        result.failed(codec.type(), UNEXPECTED_END, end).requires((int) Math.min(required, Integer.MAX_VALUE));
+        return -1;
+    }
+
+    private static int failedInGroup(ByteValidation result, ByteCodec codec, int groupEnd) {
+        if (result.failure() == UNEXPECTED_END && result.offset() == groupEnd) {
+            result.failed(codec.type(), GROUP_LENGTH_MISMATCH, groupEnd);
+        }
+        return -1;
+    }
+
+    /**
+     * reads a fixed-width or varint number of the given encoding
+     */
+    static long readNumber(ByteBuffer buffer, int pos, int length, int byteOrder) {
+        if (!isVarint(byteOrder)) {
+            return length <= 4 ? readInt(buffer, pos, length, byteOrder) & 0xFFFFFFFFL
+                    : readLong(buffer, pos, length, byteOrder);
+        }
+        long value = ByteVarints.read(buffer, pos, length);
+        return byteOrder == ZIGZAG ? ByteVarints.decodeZigzag(value) : value;
+    }
+
+    static int readInt(ByteBuffer buffer, int pos, int length, int byteOrder) {
+        int value = 0;
+        if (byteOrder == LITTLE_ENDIAN) {
+            for (int i = Math.min(length, 4) - 1; i >= 0; i--) {
+                value = value << 8 | buffer.get(pos + i) & 0xFF;
+            }
+        } else {
+            for (int i = Math.max(0, length - 4); i < length; i++) {
+                value = value << 8 | buffer.get(pos + i) & 0xFF;
+            }
+        }
+        return value;
+    }
+
+    static long readLong(ByteBuffer buffer, int pos, int length, int byteOrder) {
+        long value = 0;
+        if (byteOrder == LITTLE_ENDIAN) {
+            for (int i = Math.min(length, 8) - 1; i >= 0; i--) {
+                value = value << 8 | buffer.get(pos + i) & 0xFF;
+            }
+        } else {
+            for (int i = Math.max(0, length - 8); i < length; i++) {
+                value = value << 8 | buffer.get(pos + i) & 0xFF;
+            }
+        }
+        return value;
+    }
+
+    /**
+     * @return the element type if {@code type} is a list that can be filled with an {@link ArrayList}, null otherwise
+     */
+    static Type listElementType(Type type) {
+        if (type instanceof ParameterizedType parameterizedType
+                && parameterizedType.getRawType() instanceof Class<?> raw && raw.isAssignableFrom(ArrayList.class)
+                && parameterizedType.getActualTypeArguments().length == 1) {
+            return parameterizedType.getActualTypeArguments()[0];
+        }
+        return null;
+    }
+
+    static boolean isByteType(Class<?> type) {
+        return type.getAnnotation(ByteFormat.class) != null || type.getAnnotation(ByteVariants.class) != null;
+    }
+
+    static int naturalSize(Class<?> type) {
+        if (type == Long.class) {
+            return Long.BYTES;
+        }
+        if (type == Integer.class) {
+            return Integer.BYTES;
+        }
+        if (type == Short.class || type == Character.class) {
+            return Short.BYTES;
+        }
+        return type == Byte.class ? 1 : 0;
+    }
+}
@@ -0,0 +1,56 @@
+package de.creativecouple.validation.byte_mapper;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 varints: seven bits per byte, least significant group first, the high bit set on all but the last byte. Signed
+ * values are zigzag-encoded so that small negative numbers stay short.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class ByteVarints {
+
+    static final int MAX_LENGTH = 10;
+    static final int MAX_INT_LENGTH = 5;
+
+    static long encodeZigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    static long decodeZigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+    /**
+     * @return the number of bytes needed for {@code value}
+     */
+    static int size(long value) {
+        return Math.max(1, (Long.SIZE - Long.numberOfLeadingZeros(value) + 6) / 7);
+    }
+
+    /**
+     * @return the number of bytes of the varint at {@code pos}, -1 if it does not end before {@code end}, or -2 if it
+     *         is longer than {@link #MAX_LENGTH}
+     */
+    static int length(ByteBuffer buffer, int pos, int end) {
+        for (int i = 0; i < MAX_LENGTH; i++) {
+            if (pos + i >= end) {
+                return -1;
+            }
+            if (buffer.get(pos + i) >= 0) {
+                return i + 1;
+            }
+        }
+        return -2;
+    }
+
+    static long read(ByteBuffer buffer, int pos, int length) {
+        long value = 0;
+        for (int i = Math.min(length, MAX_LENGTH) - 1; i >= 0; i--) {
+            value = value << 7 | buffer.get(pos + i) & 0x7F;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,40 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Receives the decoded fields of a record in pattern order. Field ids are the indices of the record components; values
+ * of boolean, byte, short, char and int components as well as enum codes arrive via {@link #onInt}, long via
+ * {@link #onLong}, and all other non-record components as raw bytes via {@link #onBytes}. Nested records and list
+ * elements are framed by {@link #onRecordStart} and {@link #onRecordEnd}.
+ */
+public interface ByteVisitor {
+
+    default void onRecordStart(Class<?> type) {
+    }
+
+    default void onRecordEnd(Class<?> type) {
+    }
+
+    default void onVariant(Class<?> variant) {
+    }
+
+    default void onGroupStart() {
+    }
+
+    default void onGroupEnd() {
+    }
+
+    default void onInt(int fieldId, int value) {
+    }
+
+    default void onLong(int fieldId, long value) {
+    }
+
+    /**
+     * the bytes are {@code buffer.get(offset)} .. {@code buffer.get(offset + length - 1)} and only valid during the
+     * call
+     */
+    default void onBytes(int fieldId, ByteBuffer buffer, int offset, int length) {
+    }
+}
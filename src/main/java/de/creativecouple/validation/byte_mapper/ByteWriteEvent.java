@@ -0,0 +1,33 @@
+package de.creativecouple.validation.byte_mapper;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Threshold;
+
+@Name("de.creativecouple.validation.byte_mapper.Write")
+@Label("Byte Mapper Write")
+@Category("Byte Mapper")
+@StackTrace(false)
+@Threshold("1 ms")
+class ByteWriteEvent extends Event {
+
+    @Label("Type")
+    Class<?> type;
+
+    @Label("Bytes")
+    @DataAmount
+    int bytes;
+
+    void commit(Class<?> type, int bytes) {
+        end();
+        if (shouldCommit()) {
+            this.type = type;
+            this.bytes = bytes;
+            commit();
+        }
+    }
+}
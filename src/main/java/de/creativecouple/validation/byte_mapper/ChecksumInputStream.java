@@ -0,0 +1,92 @@
+package de.creativecouple.validation.byte_mapper;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.zip.Checksum;
+
+/**
+ * Feeds every consumed byte into the running checksums of a pattern. Bytes read between {@link #mark} and
+ * {@link #reset} are only look-ahead and are counted when they are read again.
+ */
+class ChecksumInputStream extends FilterInputStream {
+
+    private final BytePattern pattern;
+    private final Checksum[] checksums;
+    private boolean marked;
+
+    ChecksumInputStream(InputStream input, BytePattern pattern) {
+        super(input);
+        this.pattern = pattern;
+        this.checksums = new Checksum[pattern.length];
+    }
+
+    void startAt(int event) {
+        for (int checksumEvent = event; checksumEvent < pattern.length; checksumEvent++) {
+            if (pattern.checksumStarts[checksumEvent] == event) {
+                checksums[checksumEvent] = ByteChecksums.create(pattern.checksumAlgorithm(checksumEvent));
+            }
+        }
+    }
+
+    long finish(int event) {
+        long value = checksums[event].getValue();
+        checksums[event] = null;
+        return value;
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = in.read();
+        if (b >= 0 && !marked) {
+            for (Checksum checksum : checksums) {
+                if (checksum != null) {
+                    checksum.update(b);
+                }
+            }
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        int n = in.read(bytes, offset, length);
+        if (n > 0 && !marked) {
+            for (Checksum checksum : checksums) {
+                if (checksum != null) {
+                    checksum.update(bytes, offset, n);
+                }
+            }
+        }
+        return n;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        if (n <= 0) {
+            return 0;
+        }
+        byte[] skipped = new byte[(int) Math.min(n, 8192)];
+        long total = 0;
+        while (total < n) {
+            int read = read(skipped, 0, (int) Math.min(n - total, skipped.length));
+            if (read < 0) {
+                break;
+            }
+            total += read;
+        }
+        return total;
+    }
+
+    @Override
+    public synchronized void mark(int readLimit) {
+        in.mark(readLimit);
+        marked = true;
+    }
+
+    @Override
+    public synchronized void reset() throws IOException {
+        in.reset();
+        marked = false;
+    }
+}
@@ -2,8 +2,6 @@ package de.creativecouple.validation.byte_mapper;
 
 record LinearSizeValue(int constantValue, int linearFactor, String sizeVariable) {
 
-    public static LinearSizeValue ONE = new LinearSizeValue(1, 0, null);
-
     public static LinearSizeValue of(String varName) {
         return new LinearSizeValue(0, 1, varName);
     }
@@ -13,6 +11,9 @@ record LinearSizeValue(int constantValue, int linearFactor, String sizeVariable)
     }
 
     public LinearSizeValue add(LinearSizeValue size) {
+        if (isDataDependent() || size.isDataDependent()) {
+            throw new IllegalArgumentException("cannot combine data-dependent size '" + this + "' with '" + size + "'");
+        }
         if (size.sizeVariable == null || size.linearFactor == 0) {
             return add(size.constantValue);
         }
@@ -33,4 +34,8 @@ record LinearSizeValue(int constantValue, int linearFactor, String sizeVariable)
     public boolean isVariable() {
         return sizeVariable != null && linearFactor != 0;
     }
+
+    public boolean isDataDependent() {
+        return BytePattern.VARINT_SIZE_NAME.equals(sizeVariable);
+    }
 }
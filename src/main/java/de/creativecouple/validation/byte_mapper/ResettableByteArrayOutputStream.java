@@ -1,10 +1,32 @@
 package de.creativecouple.validation.byte_mapper;
 
 import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.zip.Checksum;
 
 class ResettableByteArrayOutputStream extends ByteArrayOutputStream {
     int unresetPos = -1;
 
+    private final int detachThreshold;
+    private final List<ByteBuffer> detached = new ArrayList<>();
+    private int[] detachedAt = new int[4];
+    private int detachedBytes;
+
+    ResettableByteArrayOutputStream() {
+        this(-1);
+    }
+
+    /**
+     * @param detachThreshold
+     *            payloads of at least this many bytes are kept by reference instead of being copied, -1 to always copy
+     */
+    ResettableByteArrayOutputStream(int detachThreshold) {
+        this.detachThreshold = detachThreshold;
+    }
+
     public int count() {
         return count;
     }
@@ -18,4 +40,78 @@ class ResettableByteArrayOutputStream extends ByteArrayOutputStream {
         this.count = this.unresetPos;
         this.unresetPos = -1;
     }
+
+    public synchronized void write(ByteBuffer buffer) {
+        int length = buffer.remaining();
+        if (detachThreshold >= 0 && length >= detachThreshold) {
+            if (detached.size() == detachedAt.length) {
+                detachedAt = Arrays.copyOf(detachedAt, detachedAt.length << 1);
+            }
+            detachedAt[detached.size()] = count;
+            detached.add(buffer.duplicate());
+            detachedBytes += length;
+            return;
+        }
+        if (buffer.hasArray()) {
+            write(buffer.array(), buffer.arrayOffset() + buffer.position(), length);
+            return;
+        }
+        if (count + length > buf.length) {
+            buf = Arrays.copyOf(buf, Math.max(buf.length << 1, count + length));
+        }
+        buffer.get(buffer.position(), buf, count, length);
+        count += length;
+    }
+
+    /**
+     * the number of bytes written, including detached payloads
+     */
+    public int size() {
+        return count + detachedBytes;
+    }
+
+    /**
+     * the written bytes as buffers, with detached payloads between slices of the internal buffer
+     */
+    public ByteBuffer[] buffers() {
+        ByteBuffer[] buffers = new ByteBuffer[2 * detached.size() + 1];
+        int pos = 0;
+        for (int i = 0; i < detached.size(); i++) {
+            buffers[2 * i] = ByteBuffer.wrap(buf, pos, detachedAt[i] - pos);
+            buffers[2 * i + 1] = detached.get(i);
+            pos = detachedAt[i];
+        }
+        buffers[buffers.length - 1] = ByteBuffer.wrap(buf, pos, count - pos);
+        return buffers;
+    }
+
+    /**
+     * the current write position including the number of detached payloads before it, for {@link #update}
+     */
+    public long position() {
+        return (long) detached.size() << 32 | count;
+    }
+
+    /**
+     * feeds the bytes between two {@link #position()}s into the checksum
+     */
+    public synchronized void update(Checksum checksum, long from, long to) {
+        int pos = (int) from;
+        for (int i = (int) (from >>> 32), end = (int) (to >>> 32); i < end; i++) {
+            checksum.update(buf, pos, detachedAt[i] - pos);
+            checksum.update(detached.get(i).duplicate());
+            pos = detachedAt[i];
+        }
+        checksum.update(buf, pos, (int) to - pos);
+    }
+
+    public synchronized void clear() {
+        reset();
+        detached.clear();
+        detachedBytes = 0;
+    }
+
+    int capacity() {
+        return buf.length;
+    }
 }
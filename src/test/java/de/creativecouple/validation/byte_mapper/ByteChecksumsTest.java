@@ -0,0 +1,152 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant2;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.util.zip.CRC32;
+import java.util.zip.CRC32C;
+
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.CHECKSUM_MISMATCH;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteChecksumsTest {
+
+    @ByteFormat("""
+            7E
+            hi ** :$size
+            **{$size} :body
+            hi ** ** ** :#crc32
+            """)
+    public record Framed(byte[] body) {
+    }
+
+    @ByteFormat("""
+            01 [ ** ** :value ]{2}
+            lo ** ** ** :#crc32c
+            """)
+    public record GroupChecksum(short value) {
+    }
+
+    @ByteFormat("""
+            ** ** ** ** :actual
+            ** ** ** ** :#adler32
+            """)
+    public record ChecksummedVariant(SameSizeVariant actual) {
+    }
+
+    @ByteFormat("** :#md5")
+    public record UnknownAlgorithm() {
+    }
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    @Test
+    void writeChecksumOverRecord() {
+        byte[] bytes = mapper.writeBytes(new Framed(new byte[] { 1, 2, 3 }));
+
+        CRC32 crc = new CRC32();
+        crc.update(bytes, 0, 6);
+        assertThat(bytes).hasSize(10);
+        assertThat(ByteBuffer.wrap(bytes, 6, 4).getInt()).isEqualTo((int) crc.getValue());
+    }
+
+    @Test
+    void writeChecksumOverGroup() {
+        byte[] bytes = mapper.writeBytes(new GroupChecksum((short) 0x1234));
+
+        CRC32C crc = new CRC32C();
+        crc.update(new byte[] { 0x12, 0x34 });
+        assertThat(bytes).hasSize(7);
+        assertThat(ByteBuffer.wrap(bytes, 3, 4).order(ByteOrder.LITTLE_ENDIAN).getInt())
+                .isEqualTo((int) crc.getValue());
+    }
+
+    @Test
+    void readVerifiesChecksum() {
+        byte[] bytes = mapper.writeBytes(new Framed(new byte[] { 1, 2, 3 }));
+        assertThat(mapper.readBytes(bytes, Framed.class).body()).containsExactly(1, 2, 3);
+        assertThat(mapper.readBytes(new ByteArrayInputStream(bytes), Framed.class).body()).containsExactly(1, 2, 3);
+        assertThat(mapper.validate(bytes, Framed.class).ok()).isTrue();
+
+        bytes[4] ^= 1;
+        byte[] corrupted = bytes;
+        assertThatThrownBy(() -> mapper.readBytes(corrupted, Framed.class)).isInstanceOf(NumberFormatException.class)
+                .hasMessageContaining("checksum");
+        assertThat(mapper.validate(corrupted, Framed.class).failure()).isEqualTo(CHECKSUM_MISMATCH);
+        assertThat(mapper.validate(corrupted, Framed.class).offset()).isEqualTo(6);
+    }
+
+    @Test
+    void readGroupChecksumIgnoresBytesOutsideGroup() {
+        byte[] bytes = mapper.writeBytes(new GroupChecksum((short) 7));
+        assertThat(mapper.readBytes(bytes, GroupChecksum.class)).isEqualTo(new GroupChecksum((short) 7));
+        bytes[0] = 1;
+        assertThat(mapper.validate(bytes, GroupChecksum.class).ok()).isTrue();
+    }
+
+    @Test
+    void readChecksumAcrossVariantLookahead() {
+        ChecksummedVariant value = new ChecksummedVariant(new SimpleVariant2(11L));
+        byte[] bytes = mapper.writeBytes(value);
+        assertThat(mapper.readBytes(new ByteArrayInputStream(bytes), ChecksummedVariant.class)).isEqualTo(value);
+        assertThat(mapper.validate(bytes, ChecksummedVariant.class).ok()).isTrue();
+    }
+
+    @Test
+    void gatheringWriteChecksumsDetachedPayloads() throws IOException {
+        Framed value = new Framed(new byte[5000]);
+        ByteArrayOutputStream received = new ByteArrayOutputStream();
+        GatheringByteChannel channel = new GatheringByteChannel() {
+            private final WritableByteChannel target = Channels.newChannel(received);
+
+            @Override
+            public long write(ByteBuffer[] sources, int offset, int length) throws IOException {
+                long written = 0;
+                for (int i = offset; i < offset + length; i++) {
+                    written += target.write(sources[i]);
+                }
+                return written;
+            }
+
+            @Override
+            public long write(ByteBuffer[] sources) throws IOException {
+                return write(sources, 0, sources.length);
+            }
+
+            @Override
+            public int write(ByteBuffer source) throws IOException {
+                return target.write(source);
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        mapper.writeBytes(channel, value);
+
+        assertThat(received.toByteArray()).isEqualTo(mapper.writeBytes(value));
+        assertThat(mapper.readBytes(received.toByteArray(), Framed.class).body()).hasSize(5000);
+    }
+
+    @Test
+    void rejectUnknownAlgorithm() {
+        assertThatThrownBy(() -> mapper.writeBytes(new UnknownAlgorithm())).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("md5");
+    }
+}
@@ -0,0 +1,130 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant1;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant2;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SingleVariable;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.ref.WeakReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteCodecsTest {
+
+    @ByteFormat("CA FE ** :x")
+    public record Reloadable(int x) {
+    }
+
+    @Test
+    void cacheCodecsPerInstance() {
+        ByteCodecs codecs = new ByteCodecs(0);
+        ByteCodecs others = new ByteCodecs(0);
+
+        assertThat(codecs.get(SingleVariable.class)).isSameAs(codecs.get(SingleVariable.class));
+        assertThat(codecs.get(SingleVariable.class)).isNotSameAs(others.get(SingleVariable.class));
+        assertThat(codecs.size()).isEqualTo(-1);
+    }
+
+    @Test
+    void evictLeastRecentlyUsedCodecs() {
+        ByteCodecs codecs = new ByteCodecs(2);
+
+        ByteCodec first = codecs.get(SingleVariable.class);
+        ByteCodec second = codecs.get(SimpleVariant1.class);
+        codecs.get(SingleVariable.class);
+        codecs.get(SimpleVariant2.class);
+
+        assertThat(codecs.size()).isEqualTo(2);
+        assertThat(codecs.get(SingleVariable.class)).isSameAs(first);
+        assertThat(codecs.get(SimpleVariant1.class)).isNotSameAs(second);
+        assertThat(codecs.size()).isEqualTo(2);
+    }
+
+    @Test
+    void rejectNegativeBound() {
+        assertThatThrownBy(() -> ByteMapper.builder().maxCachedTypes(-1).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void mapWithBoundedCache() {
+        ByteMapper mapper = ByteMapper.builder().maxCachedTypes(1).build();
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(mapper.readBytes(new byte[] { 0, 11, 0, -86 }, SameSizeVariant.class))
+                    .isEqualTo(new SimpleVariant1(11));
+            assertThat(mapper.writeBytes(new SingleVariable(1))).containsExactly(0, 16, 32, 48, 0, 0, 0, 1);
+        }
+    }
+
+    @Test
+    void releaseReloadedTypes() throws Exception {
+        ByteMapper mapper = new ByteMapper();
+        WeakReference<ClassLoader> loader = readWithReloadedType(mapper);
+
+        for (int i = 0; i < 100 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(loader.get()).isNull();
+    }
+
+    @Test
+    void releaseReloadedTypesWithStatistics() throws Exception {
+        ByteMapperStatistics statistics = new ByteMapperStatistics();
+        WeakReference<ClassLoader> loader = readWithReloadedType(ByteMapper.builder().metrics(statistics).build());
+        assertThat(statistics.types()).hasSize(1);
+
+        for (int i = 0; i < 100 && loader.get() != null; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(loader.get()).isNull();
+        assertThat(statistics.types()).isEmpty();
+    }
+
+    private static WeakReference<ClassLoader> readWithReloadedType(ByteMapper mapper) throws Exception {
+        ClassLoader loader = new ReloadingClassLoader(Reloadable.class.getName());
+        Class<?> type = loader.loadClass(Reloadable.class.getName());
+        assertThat(type).isNotSameAs(Reloadable.class);
+        Object value = mapper.readBytes(new byte[] { (byte) 0xCA, (byte) 0xFE, 7 }, type);
+        assertThat(type.getMethod("x").invoke(value)).isEqualTo(7);
+        assertThat(mapper.writeBytes(value)).containsExactly(0xCA, 0xFE, 7);
+        return new WeakReference<>(loader);
+    }
+
+    private static final class ReloadingClassLoader extends ClassLoader {
+
+        private final String reloadedName;
+
+        ReloadingClassLoader(String reloadedName) {
+            super(ByteCodecsTest.class.getClassLoader());
+            this.reloadedName = reloadedName;
+        }
+
+        @Override
+        protected Class<?> loadClass(String name, boolean resolve) throws ClassNotFoundException {
+            if (!name.equals(reloadedName)) {
+                return super.loadClass(name, resolve);
+            }
+            synchronized (getClassLoadingLock(name)) {
+                Class<?> type = findLoadedClass(name);
+                if (type == null) {
+                    try (InputStream input = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+                        byte[] bytes = input.readAllBytes();
+                        type = defineClass(name, bytes, 0, bytes.length);
+                    } catch (IOException e) {
+                        throw new ClassNotFoundException(name, e);
+                    }
+                }
+                return type;
+            }
+        }
+    }
+}
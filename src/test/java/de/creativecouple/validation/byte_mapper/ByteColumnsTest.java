@@ -0,0 +1,91 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.Status;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteColumnsTest {
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    @ByteFormat("""
+            7E
+            hi{4} :id
+            hi{8} :price
+            ** :status
+            **{3} :symbol
+            """)
+    public record Trade(int id, long price, Status status, String symbol) {
+    }
+
+    @ByteFormat("** :$n **{#$n} :values")
+    public record WithList(List<Integer> values) {
+    }
+
+    @ByteFormat("hi{4} :id **{17} :trade")
+    public record WithNested(int id, Trade trade) {
+    }
+
+    private static byte[] trades(int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(count * 17);
+        for (int i = 0; i < count; i++) {
+            buffer.put((byte) 0x7E).putInt(i).putLong(1000L * i).put((byte) (i % 2 == 0 ? 0x10 : 0x20));
+            buffer.put(new byte[] { 'A', 'B', (byte) ('0' + i % 10) });
+        }
+        return buffer.array();
+    }
+
+    @Test
+    void readColumns() {
+        ByteColumns columns = mapper.readColumns(trades(5), Trade.class, 100);
+        assertThat(columns.rows()).isEqualTo(5);
+        assertThat(columns.length()).isEqualTo(5 * 17);
+        assertThat(columns.ints("id")).containsExactly(0, 1, 2, 3, 4);
+        assertThat(columns.longs("price")).containsExactly(0, 1000, 2000, 3000, 4000);
+        assertThat(columns.ints("status")).containsExactly(0x10, 0x20, 0x10, 0x20, 0x10);
+        assertThat(columns.blobs("symbol")[3]).isEqualTo(new byte[] { 'A', 'B', '3' });
+        assertThat(columns.column(0)).isSameAs(columns.column("id"));
+    }
+
+    @Test
+    void readColumns_maxRecords() {
+        ByteColumns columns = mapper.readColumns(trades(40), Trade.class, 33);
+        assertThat(columns.rows()).isEqualTo(33);
+        assertThat(columns.length()).isEqualTo(33 * 17);
+        assertThat(columns.ints("id")).hasSize(33).endsWith(32);
+    }
+
+    @Test
+    void readColumns_stopsBeforeIncompleteRecord() {
+        byte[] bytes = trades(3);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes, 0, bytes.length - 5);
+        ByteColumns columns = mapper.readColumns(buffer, Trade.class, 10);
+        assertThat(columns.rows()).isEqualTo(2);
+        assertThat(columns.length()).isEqualTo(34);
+        assertThat(buffer.position()).isZero();
+    }
+
+    @Test
+    void readColumns_malformed() {
+        byte[] bytes = trades(3);
+        bytes[17] = 0;
+        assertThatThrownBy(() -> mapper.readColumns(bytes, Trade.class, 10))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("record 1");
+    }
+
+    @Test
+    void readColumns_unsupportedComponents() {
+        assertThatThrownBy(() -> mapper.readColumns(new byte[] { 0 }, WithList.class, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> mapper.readColumns(new byte[21], WithNested.class, 10))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("component 'trade'");
+        assertThatThrownBy(() -> mapper.readColumns(new byte[] { 0 }, SameSizeVariant.class, 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,190 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteRecordLogTest.Entry;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Flow;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteFlowDecoderTest {
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    /**
+     * emits the next chunk synchronously on each request and counts the requests
+     */
+    private static final class ChunkPublisher implements Flow.Publisher<ByteBuffer> {
+
+        private final byte[] bytes;
+        private final int chunkSize;
+        private int pos;
+        private long requested;
+        private boolean cancelled;
+
+        ChunkPublisher(byte[] bytes, int chunkSize) {
+            this.bytes = bytes;
+            this.chunkSize = chunkSize;
+        }
+
+        @Override
+        public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            subscriber.onSubscribe(new Flow.Subscription() {
+                @Override
+                public void request(long n) {
+                    requested += n;
+                    for (; n > 0 && pos < bytes.length && !cancelled; n--) {
+                        int length = Math.min(chunkSize, bytes.length - pos);
+                        subscriber.onNext(ByteBuffer.wrap(bytes, pos, length));
+                        pos += length;
+                    }
+                    if (pos == bytes.length && !cancelled) {
+                        cancelled = true;
+                        subscriber.onComplete();
+                    }
+                }
+
+                @Override
+                public void cancel() {
+                    cancelled = true;
+                }
+            });
+        }
+    }
+
+    private static final class Collector<T> implements Flow.Subscriber<T> {
+
+        final List<T> items = new ArrayList<>();
+        Flow.Subscription subscription;
+        Throwable error;
+        boolean completed;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(T item) {
+            items.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    private byte[] entries(int count) {
+        ByteBuffer buffer = ByteBuffer.allocate(count * 9);
+        for (int i = 0; i < count; i++) {
+            buffer.put(mapper.writeBytes(new Entry(i, new byte[] { 1, 2, 3 })));
+        }
+        return buffer.array();
+    }
+
+    @Test
+    void decodesAcrossChunks() {
+        ChunkPublisher publisher = new ChunkPublisher(entries(20), 4);
+        ByteFlowDecoder<Entry> decoder = mapper.flowDecoder(Entry.class, 64);
+        Collector<Entry> collector = new Collector<>();
+        decoder.subscribe(collector);
+        publisher.subscribe(decoder);
+        collector.subscription.request(Long.MAX_VALUE);
+        assertThat(collector.items).extracting(Entry::id)
+                .containsExactlyElementsOf(IntStream.range(0, 20).boxed().toList());
+        assertThat(collector.items.get(7).payload()).containsExactly(1, 2, 3);
+        assertThat(collector.completed).isTrue();
+        assertThat(collector.error).isNull();
+    }
+
+    @Test
+    void requestsChunksOnlyForDemand() {
+        ChunkPublisher publisher = new ChunkPublisher(entries(100), 5);
+        ByteFlowDecoder<Entry> decoder = mapper.flowDecoder(Entry.class, 64);
+        Collector<Entry> collector = new Collector<>();
+        publisher.subscribe(decoder);
+        decoder.subscribe(collector);
+        assertThat(publisher.requested).isZero();
+        collector.subscription.request(2);
+        assertThat(collector.items).hasSize(2);
+        assertThat(publisher.requested).isEqualTo(4);
+        collector.subscription.request(1);
+        assertThat(collector.items).hasSize(3);
+        assertThat(publisher.requested).isEqualTo(6);
+        collector.subscription.cancel();
+        assertThat(publisher.cancelled).isTrue();
+        assertThat(collector.completed).isFalse();
+    }
+
+    @Test
+    void failsOnTruncatedRecord() {
+        byte[] bytes = entries(2);
+        ChunkPublisher publisher = new ChunkPublisher(Arrays.copyOf(bytes, 14), 3);
+        ByteFlowDecoder<Entry> decoder = mapper.flowDecoder(Entry.class, 64);
+        Collector<Entry> collector = new Collector<>();
+        decoder.subscribe(collector);
+        publisher.subscribe(decoder);
+        collector.subscription.request(5);
+        assertThat(collector.items).hasSize(1);
+        assertThat(collector.error).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void failsBeyondMaxBufferSize() {
+        ChunkPublisher publisher = new ChunkPublisher(mapper.writeBytes(new Entry(1, new byte[100])), 16);
+        ByteFlowDecoder<Entry> decoder = mapper.flowDecoder(Entry.class, 64);
+        Collector<Entry> collector = new Collector<>();
+        decoder.subscribe(collector);
+        publisher.subscribe(decoder);
+        collector.subscription.request(1);
+        assertThat(collector.error).isInstanceOf(IllegalArgumentException.class).hasMessageContaining("64");
+        assertThat(publisher.cancelled).isTrue();
+    }
+
+    @Test
+    void decodesChunksLargerThanMaxBufferSize() {
+        ChunkPublisher publisher = new ChunkPublisher(entries(50), 200);
+        ByteFlowDecoder<Entry> decoder = mapper.flowDecoder(Entry.class, 16);
+        Collector<Entry> collector = new Collector<>();
+        decoder.subscribe(collector);
+        publisher.subscribe(decoder);
+        collector.subscription.request(Long.MAX_VALUE);
+        assertThat(collector.error).isNull();
+        assertThat(collector.items).extracting(Entry::id)
+                .containsExactlyElementsOf(IntStream.range(0, 50).boxed().toList());
+        assertThat(collector.completed).isTrue();
+    }
+
+    @Test
+    void failsOnceDeclaredRecordLengthExceedsMaxBufferSize() {
+        ChunkPublisher publisher = new ChunkPublisher(mapper.writeBytes(new Entry(1, new byte[100])), 8);
+        ByteFlowDecoder<Entry> decoder = mapper.flowDecoder(Entry.class, 64);
+        Collector<Entry> collector = new Collector<>();
+        decoder.subscribe(collector);
+        publisher.subscribe(decoder);
+        collector.subscription.request(1);
+        assertThat(collector.error).isInstanceOf(IllegalArgumentException.class);
+        assertThat(publisher.requested).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsSecondSubscriber() {
+        ByteFlowDecoder<Entry> decoder = mapper.flowDecoder(Entry.class, 64);
+        decoder.subscribe(new Collector<>());
+        Collector<Entry> second = new Collector<>();
+        decoder.subscribe(second);
+        assertThat(second.error).isInstanceOf(IllegalStateException.class);
+    }
+}
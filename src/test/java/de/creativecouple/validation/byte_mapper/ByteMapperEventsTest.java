@@ -0,0 +1,104 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant2;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SingleVariable;
+import jdk.jfr.Event;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.EOFException;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteMapperEventsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    @Test
+    void readAndWriteEvents() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            mapper.readBytes(new byte[] { 0, 11, 0x42, 0x13 }, SameSizeVariant.class);
+            mapper.writeBytes(new SingleVariable(42));
+        });
+
+        RecordedEvent read = single(events, "de.creativecouple.validation.byte_mapper.Read");
+        assertThat(read.getClass("type").getName()).isEqualTo(SameSizeVariant.class.getName());
+        assertThat(read.getClass("variant").getName()).isEqualTo(SimpleVariant2.class.getName());
+        assertThat(read.getInt("bytes")).isEqualTo(4);
+
+        RecordedEvent write = single(events, "de.creativecouple.validation.byte_mapper.Write");
+        assertThat(write.getClass("type").getName()).isEqualTo(SingleVariable.class.getName());
+        assertThat(write.getInt("bytes")).isEqualTo(8);
+    }
+
+    @Test
+    void failureEvents() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            assertThatThrownBy(() -> mapper.readBytes(new byte[] { 1, 2, 3, 4 }, SameSizeVariant.class))
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> mapper.readBytes(new byte[] { 0, 16, 32, 49 }, SingleVariable.class))
+                    .isInstanceOf(NumberFormatException.class);
+            assertThatThrownBy(() -> mapper.readBytes(new byte[] { 0, 16 }, SingleVariable.class))
+                    .isInstanceOf(EOFException.class);
+        });
+
+        List<String> reasons = events.stream()
+                .filter(e -> e.getEventType().getName().equals("de.creativecouple.validation.byte_mapper.Failure"))
+                .map(e -> e.getString("reason")).toList();
+        assertThat(reasons).containsExactly(ByteMappingFailure.NO_VARIANT_MATCHED.name(),
+                ByteMappingFailure.PATTERN_MISMATCH.name(), ByteMappingFailure.UNEXPECTED_END.name());
+    }
+
+    @ByteFormat("77 ** :value")
+    public record CompiledOnce(int value) {
+    }
+
+    @Test
+    void compileEvent() throws Exception {
+        List<RecordedEvent> events = record(() -> {
+            mapper.writeBytes(new CompiledOnce(1));
+            mapper.writeBytes(new CompiledOnce(2));
+        });
+
+        RecordedEvent compile = single(events, "de.creativecouple.validation.byte_mapper.PatternCompile");
+        assertThat(compile.getClass("type").getName()).isEqualTo(CompiledOnce.class.getName());
+        assertThat(compile.getInt("patternEvents")).isEqualTo(2);
+    }
+
+    private List<RecordedEvent> record(Runnable action) throws Exception {
+        Path file = tempDir.resolve("events.jfr");
+        try (Recording recording = new Recording()) {
+            enable(recording, ByteReadEvent.class, ByteWriteEvent.class, BytePatternCompileEvent.class,
+                    ByteMappingFailureEvent.class);
+            recording.start();
+            action.run();
+            recording.stop();
+            recording.dump(file);
+        }
+        return RecordingFile.readAllEvents(file).stream()
+                .filter(e -> e.getEventType().getName().startsWith("de.creativecouple.")).toList();
+    }
+
+    @SafeVarargs
+    private static void enable(Recording recording, Class<? extends Event>... eventTypes) {
+        for (Class<? extends Event> eventType : eventTypes) {
+            recording.enable(eventType).withoutThreshold();
+        }
+    }
+
+    private static RecordedEvent single(List<RecordedEvent> events, String name) {
+        List<RecordedEvent> matching = events.stream().filter(e -> e.getEventType().getName().equals(name)).toList();
+        assertThat(matching).hasSize(1);
+        return matching.get(0);
+    }
+}
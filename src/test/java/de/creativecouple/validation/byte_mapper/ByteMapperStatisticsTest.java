@@ -0,0 +1,86 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant1;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant2;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SingleVariable;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.NO_VARIANT_MATCHED;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.PATTERN_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.UNEXPECTED_END;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteMapperStatisticsTest {
+
+    private final ByteMapperStatistics statistics = new ByteMapperStatistics();
+
+    private final ByteMapper mapper = ByteMapper.builder().metrics(statistics).build();
+
+    @Test
+    void countReadsAndWrites() {
+        mapper.readBytes(new byte[] { 0, 16, 32, 48, 0, 0, 0, 1 }, SingleVariable.class);
+        mapper.readBytes(new byte[] { 0, 16, 32, 48, 0, 0, 0, 2 }, SingleVariable.class);
+        mapper.writeBytes(new SingleVariable(3));
+
+        ByteMapperStatistics.TypeStatistics typeStatistics = statistics.of(SingleVariable.class);
+        assertThat(statistics.types()).containsExactly(SingleVariable.class);
+        assertThat(typeStatistics.reads()).isEqualTo(2);
+        assertThat(typeStatistics.bytesRead()).isEqualTo(16);
+        assertThat(typeStatistics.writes()).isEqualTo(1);
+        assertThat(typeStatistics.bytesWritten()).isEqualTo(8);
+        assertThat(typeStatistics.readSizeHistogram()[4]).isEqualTo(2);
+        assertThat(typeStatistics.writeSizeHistogram()[4]).isEqualTo(1);
+    }
+
+    @Test
+    void countVariantsAndFailures() {
+        mapper.readBytes(new byte[] { 0, 11, 0, -86 }, SameSizeVariant.class);
+        mapper.readBytes(new byte[] { 0, 11, 0x42, 0x13 }, SameSizeVariant.class);
+        mapper.readBytes(new byte[] { 0, 12, 0x42, 0x13 }, SameSizeVariant.class);
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 1, 2, 3, 4 }, SameSizeVariant.class));
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 0, 16, 32, 49 }, SingleVariable.class));
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 0, 16 }, SingleVariable.class));
+
+        assertThat(statistics.of(SameSizeVariant.class).variantHits())
+                .isEqualTo(Map.of(SimpleVariant1.class, 1L, SimpleVariant2.class, 2L));
+        assertThat(statistics.of(SameSizeVariant.class).failures(NO_VARIANT_MATCHED)).isEqualTo(1);
+        assertThat(statistics.of(SingleVariable.class).failures(PATTERN_MISMATCH)).isEqualTo(1);
+        assertThat(statistics.of(SingleVariable.class).failures(UNEXPECTED_END)).isEqualTo(1);
+        assertThat(statistics.of(SimpleVariant2.class).reads()).isEqualTo(2);
+    }
+
+    @Test
+    void countConcurrently() throws InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 64; t++) {
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    mapper.writeBytes(new SingleVariable(i));
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertThat(statistics.of(SingleVariable.class).writes()).isEqualTo(64_000);
+        assertThat(statistics.of(SingleVariable.class).bytesWritten()).isEqualTo(512_000);
+    }
+
+    @Test
+    void sizeBuckets() {
+        assertThat(ByteMapperStatistics.sizeBucket(0)).isEqualTo(0);
+        assertThat(ByteMapperStatistics.sizeBucket(1)).isEqualTo(1);
+        assertThat(ByteMapperStatistics.sizeBucket(2)).isEqualTo(2);
+        assertThat(ByteMapperStatistics.sizeBucket(3)).isEqualTo(2);
+        assertThat(ByteMapperStatistics.sizeBucket(1024)).isEqualTo(11);
+        assertThat(ByteMapperStatistics.sizeBucket(Integer.MAX_VALUE)).isEqualTo(31);
+    }
+}
@@ -2,7 +2,21 @@ package de.creativecouple.validation.byte_mapper;
 
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.GatheringByteChannel;
+import java.nio.channels.Pipe;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -428,4 +442,656 @@ public class ByteMapperTest {
                         .isInstanceOf(IllegalArgumentException.class);
     }
 
-}
\ No newline at end of file
+    @ByteFormat("""
+            ** :$count
+            **{#$count} :values
+            lo :$n
+            lo{#$n} :data
+            """)
+    public record CountedList(List<SingleVariable> values, List<Short> data) {
+    }
+
+    private static final byte[] COUNTED_LIST = { 2, 0, 16, 32, 48, 0, 0, 0, 7, 0, 16, 32, 48, 0, 0, 0, 9, 2, 1, 0, 2,
+            0 };
+
+    @Test
+    void countedList_read() {
+        CountedList result = mapper.readBytes(COUNTED_LIST, CountedList.class);
+        assertThat(result).isEqualTo(
+                new CountedList(List.of(new SingleVariable(7), new SingleVariable(9)), List.of((short) 1, (short) 2)));
+    }
+
+    @Test
+    void countedList_write() {
+        byte[] result = mapper.writeBytes(
+                new CountedList(List.of(new SingleVariable(7), new SingleVariable(9)), List.of((short) 1, (short) 2)));
+        assertThat(result).isEqualTo(COUNTED_LIST);
+    }
+
+    @Test
+    void countedList_validate() {
+        assertThat(mapper.validate(COUNTED_LIST, CountedList.class).length()).isEqualTo(COUNTED_LIST.length);
+        ByteValidation truncated = mapper.validate(Arrays.copyOf(COUNTED_LIST, COUNTED_LIST.length - 1),
+                CountedList.class);
+        assertThat(truncated.ok()).isFalse();
+        assertThat(truncated.failure()).isEqualTo(ByteMappingFailure.UNEXPECTED_END);
+    }
+
+    @Test
+    void countedList_read_missingElements() {
+        assertThatThrownBy(() -> mapper.readBytes(Arrays.copyOf(COUNTED_LIST, 12), CountedList.class))
+                .isInstanceOf(EOFException.class);
+    }
+
+    @ByteFormat("** :$n **{#$n} :flags")
+    public record CountedFlags(List<Boolean> flags) {
+    }
+
+    @Test
+    void countedList_rejectsElementsOfUnknownLength() {
+        byte[] bytes = { 2, 1, 0 };
+        assertThatThrownBy(() -> mapper.readBytes(bytes, CountedFlags.class))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("element count not supported");
+        assertThatThrownBy(() -> mapper.validate(bytes, CountedFlags.class))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("element count not supported");
+    }
+
+    @Test
+    void constantSizeList_read_fromStreamWithoutAvailable() {
+        byte[] bytes = { 0x44, 0x22, 0, 16, 32, 48, 0, 0, 0, 3, 0, 16, 32, 48, 0, 0, 0, 2, 0, 16, 32, 48, 0, 0, 0, 1, 0,
+                16, 32, 48, 0, 0, 0, 0 };
+        ConstantSizeList result = mapper.readBytes(new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public int available() {
+                return 0;
+            }
+
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        }, ConstantSizeList.class);
+        assertThat(result).isEqualTo(new ConstantSizeList(
+                List.of(new SingleVariable(3), new SingleVariable(2), new SingleVariable(1), new SingleVariable(0))));
+    }
+
+    @ByteVariants({ LateVariant1.class, LateVariant2.class })
+    public interface LateVariant {
+    }
+
+    @ByteFormat("** ** ** ** ** ** ** ** ** ** :payload 01")
+    public record LateVariant1(long payload) implements LateVariant {
+    }
+
+    @ByteFormat("** ** ** ** ** ** ** ** ** ** :payload 02")
+    public record LateVariant2(long payload) implements LateVariant {
+    }
+
+    private static InputStream nonMarkable(byte[] bytes) {
+        return new FilterInputStream(new ByteArrayInputStream(bytes)) {
+            @Override
+            public boolean markSupported() {
+                return false;
+            }
+        };
+    }
+
+    @Test
+    void variants_read_fromNonMarkableStream() {
+        InputStream input = nonMarkable(new byte[] { 0, 11, 0x42, 0x13, 0, 12, 0, -86 });
+        assertThat(mapper.readBytes(input, SameSizeVariant.class)).isEqualTo(new SimpleVariant2(11));
+        assertThat(mapper.readBytes(input, SameSizeVariant.class)).isEqualTo(new SimpleVariant1(12));
+    }
+
+    @Test
+    void variants_read_beyondDefaultLookahead() {
+        byte[] bytes = { 0, 0, 0, 0, 0, 0, 0, 0, 0, 7, 2 };
+        assertThatThrownBy(() -> mapper.readBytes(bytes, LateVariant.class)).isInstanceOf(NumberFormatException.class);
+        ByteMapper wide = ByteMapper.builder().lookahead(11).build();
+        assertThat(wide.readBytes(bytes, LateVariant.class)).isEqualTo(new LateVariant2(7));
+        assertThat(wide.readBytes(nonMarkable(bytes), LateVariant.class)).isEqualTo(new LateVariant2(7));
+        assertThat(wide.validate(bytes, LateVariant.class).type()).isEqualTo(LateVariant2.class);
+    }
+
+    @Test
+    void lookahead_negative() {
+        assertThatThrownBy(() -> ByteMapper.builder().lookahead(-1).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    public enum Status {
+        @ByteCode(0x10)
+        OK, @ByteCode(0x20)
+        FAILED, @ByteCode(0xFF)
+        UNKNOWN
+    }
+
+    public enum Opcode {
+        @ByteCode(1)
+        PING, @ByteCode(0x10000)
+        FETCH, @ByteCode(0x7FFFFFFF)
+        SHUTDOWN, @ByteCode(0x80000000)
+        RESET
+    }
+
+    @ByteFormat("** :status hi ** ** ** :opcode")
+    public record Command(Status status, Opcode opcode) {
+    }
+
+    @Test
+    void enums_read() {
+        assertThat(mapper.readBytes(new byte[] { 0x20, 0, 1, 0, 0 }, Command.class))
+                .isEqualTo(new Command(Status.FAILED, Opcode.FETCH));
+        assertThat(mapper.readBytes(new byte[] { -1, -128, 0, 0, 0 }, Command.class))
+                .isEqualTo(new Command(Status.UNKNOWN, Opcode.RESET));
+    }
+
+    @Test
+    void enums_write() {
+        assertThat(mapper.writeBytes(new Command(Status.OK, Opcode.SHUTDOWN)))
+                .isEqualTo(new byte[] { 0x10, 0x7F, -1, -1, -1 });
+        assertThat(mapper.writeBytes(new Command(Status.FAILED, Opcode.PING)))
+                .isEqualTo(new byte[] { 0x20, 0, 0, 0, 1 });
+    }
+
+    @Test
+    void enums_unknownCode() {
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 0x11, 0, 0, 0, 1 }, Command.class))
+                .isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 0x10, 0, 0, 0, 2 }, Command.class))
+                .isInstanceOf(NumberFormatException.class);
+        ByteValidation result = mapper.validate(new byte[] { 0x10, 0, 0, 0, 2 }, Command.class);
+        assertThat(result.failure()).isEqualTo(ByteMappingFailure.UNKNOWN_CODE);
+        assertThat(result.offset()).isEqualTo(1);
+    }
+
+    @ByteFormat("** :opcode")
+    public record NarrowCommand(Opcode opcode) {
+    }
+
+    @Test
+    void enums_codesTooWide() {
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 1 }, NarrowCommand.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ByteFormat("""
+            AA
+            vu :count
+            vz :delta
+            vu :$size
+            **{$size} :name
+            vu :$n
+            vz{#$n} :samples
+            vu :status
+            """)
+    public record VarintMessage(long count, int delta, String name, List<Long> samples, Status status) {
+    }
+
+    private static final byte[] VARINT_MESSAGE = { -86, -84, 2, 3, 3, 'a', 'b', 'c', 2, 1, -128, 1, 0x20 };
+
+    @Test
+    void varints_read() {
+        assertThat(mapper.readBytes(VARINT_MESSAGE, VarintMessage.class))
+                .isEqualTo(new VarintMessage(300, -2, "abc", List.of(-1L, 64L), Status.FAILED));
+        assertThat(mapper.readBytes(nonMarkable(VARINT_MESSAGE), VarintMessage.class))
+                .isEqualTo(new VarintMessage(300, -2, "abc", List.of(-1L, 64L), Status.FAILED));
+    }
+
+    @Test
+    void varints_write() {
+        assertThat(mapper.writeBytes(new VarintMessage(300, -2, "abc", List.of(-1L, 64L), Status.FAILED)))
+                .isEqualTo(VARINT_MESSAGE);
+    }
+
+    @Test
+    void varints_validate() {
+        assertThat(mapper.validate(VARINT_MESSAGE, VarintMessage.class).length()).isEqualTo(VARINT_MESSAGE.length);
+        assertThat(mapper.measure(VARINT_MESSAGE, 0, VarintMessage.class)).isEqualTo(VARINT_MESSAGE.length);
+        assertThat(mapper.measure(Arrays.copyOf(VARINT_MESSAGE, 2), 0, VarintMessage.class))
+                .isEqualTo(ByteMapper.INCOMPLETE);
+    }
+
+    @Test
+    void varints_read_tooLong() {
+        byte[] bytes = { -86, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1 };
+        assertThatThrownBy(() -> mapper.readBytes(bytes, VarintMessage.class))
+                .isInstanceOf(NumberFormatException.class);
+        assertThat(mapper.validate(bytes, VarintMessage.class).failure()).isEqualTo(ByteMappingFailure.INVALID_SIZE);
+    }
+
+    @ByteFormat("vu :$length [ ** :a hi ** :b ]{$length}")
+    public record VarintGroup(int a, int b) {
+    }
+
+    @Test
+    void varints_groupSize_paddedOnWrite() {
+        byte[] bytes = mapper.writeBytes(new VarintGroup(1, 0x203));
+        assertThat(bytes).isEqualTo(new byte[] { -125, -128, -128, -128, 0, 1, 2, 3 });
+        assertThat(mapper.readBytes(bytes, VarintGroup.class)).isEqualTo(new VarintGroup(1, 0x203));
+    }
+
+    @ByteFormat("**{?} :rest vu :value")
+    public record VarintAfterRest(byte[] rest, long value) {
+    }
+
+    @Test
+    void varints_afterRestSize() {
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 1, 2 }, VarintAfterRest.class))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ByteFormat("** :missing")
+    public record UnknownParameter(int value) {
+    }
+
+    @ByteFormat("** :value")
+    public record ListOfBroken(List<UnknownParameter> values, WrongFormat wrong) {
+    }
+
+    @Test
+    void precompile_validTypes() {
+        assertThat(mapper.precompile(RestSizeList.class, SameSizeVariant.class, WithSameSizeVariant.class))
+                .isSameAs(mapper);
+    }
+
+    @Test
+    void precompile_reportsAllErrors() {
+        assertThatThrownBy(() -> mapper.precompile(ListOfBroken.class)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageStartingWith("3 byte pattern error(s)").hasMessageContaining("'missing'")
+                .hasMessageContaining("'value'").hasMessageContaining("unexpected token '*'")
+                .satisfies(e -> assertThat(e.getSuppressed()).hasSize(3));
+    }
+
+    @Test
+    void precompilePackage_scansAnnotatedTypes() {
+        assertThatThrownBy(() -> mapper.precompilePackage(ByteMapper.class.getPackageName()))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("unexpected token '*'")
+                .hasMessageContaining("'missing'").hasMessageNotContaining("WithoutAnnotation");
+    }
+
+    @ByteFormat("""
+            hi ** :$size
+            **{$size} :blob
+            ff
+            """)
+    public record Blob(ByteBuffer blob) {
+    }
+
+    @Test
+    void byteBuffer_read_slicesSource() {
+        byte[] bytes = { -1, 0, 3, 1, 2, 3, -1 };
+        Blob result = mapper.readBytes(bytes, 1, 6, Blob.class);
+        assertThat(result.blob().isReadOnly()).isTrue();
+        assertThat(result.blob().remaining()).isEqualTo(3);
+        bytes[4] = 42;
+        assertThat(result.blob().get(1)).isEqualTo((byte) 42);
+    }
+
+    @Test
+    void byteBuffer_read_fromDirectBuffer() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(6).put(new byte[] { 0, 3, 1, 2, 3, -1 }).flip();
+        Blob result = mapper.readBytes(buffer, Blob.class);
+        assertThat(result.blob().isDirect()).isTrue();
+        assertThat(result.blob()).isEqualTo(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+        assertThat(buffer.position()).isZero();
+    }
+
+    @Test
+    void byteBuffer_read_fromStreamCopies() {
+        Blob result = mapper.readBytes(new ByteArrayInputStream(new byte[] { 0, 2, 7, 8, -1 }), Blob.class);
+        assertThat(result.blob()).isEqualTo(ByteBuffer.wrap(new byte[] { 7, 8 }));
+    }
+
+    @Test
+    void byteBuffer_read_tooShort() {
+        assertThatThrownBy(() -> mapper.readBytes(new byte[] { 0, 9, 1, 2 }, Blob.class))
+                .isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void byteBuffer_write() {
+        assertThat(mapper.writeBytes(new Blob(ByteBuffer.wrap(new byte[] { 0, 1, 2, 3, 4 }, 1, 3))))
+                .isEqualTo(new byte[] { 0, 3, 1, 2, 3, -1 });
+        ByteBuffer direct = ByteBuffer.allocateDirect(300).put(new byte[300]).flip();
+        assertThat(mapper.writeBytes(new Blob(direct))).hasSize(303);
+        assertThat(direct.remaining()).isEqualTo(300);
+    }
+
+    @ByteFormat("""
+            ** ** ** ** ** ** :symbol
+            ** :$size
+            **{$size} :venue
+            """)
+    public record Quote(String symbol, String venue) {
+    }
+
+    @Test
+    void string_read_zeroPadded() {
+        Quote result = mapper.readBytes(new byte[] { 'A', 'B', 'C', 0, 0, 0, 4, 'X', 'E', 'T', 'R' }, Quote.class);
+        assertThat(result).isEqualTo(new Quote("ABC", "XETR"));
+    }
+
+    @Test
+    void string_write_zeroPadded() {
+        assertThat(mapper.writeBytes(new Quote("ABC", "Xü")))
+                .isEqualTo(new byte[] { 'A', 'B', 'C', 0, 0, 0, 3, 'X', (byte) 0xC3, (byte) 0xBC });
+        assertThatThrownBy(() -> mapper.writeBytes(new Quote("TOOLONG", "")))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void string_readWrite_withCharset() {
+        ByteMapper latin1 = ByteMapper.builder().charset(StandardCharsets.ISO_8859_1).build();
+        byte[] bytes = latin1.writeBytes(new Quote("ÄÖÜ", "ß"));
+        assertThat(bytes).isEqualTo(new byte[] { (byte) 0xC4, (byte) 0xD6, (byte) 0xDC, 0, 0, 0, 1, (byte) 0xDF });
+        assertThat(latin1.readBytes(new ByteArrayInputStream(bytes), Quote.class)).isEqualTo(new Quote("ÄÖÜ", "ß"));
+    }
+
+    @Test
+    void string_read_deduplicated() {
+        ByteMapper caching = ByteMapper.builder().stringCacheSize(16).build();
+        byte[] bytes = { 'A', 'B', 'C', 0, 0, 0, 3, 'A', 'B', 'C' };
+        Quote first = caching.readBytes(bytes, Quote.class);
+        Quote second = caching.readBytes(new ByteArrayInputStream(bytes), Quote.class);
+        assertThat(first.symbol()).isSameAs(first.venue()).isSameAs(second.symbol());
+        assertThat(mapper.readBytes(bytes, Quote.class).symbol())
+                .isNotSameAs(mapper.readBytes(bytes, Quote.class).symbol());
+    }
+
+    private static class ChunkedChannel implements GatheringByteChannel {
+
+        final ByteArrayOutputStream received = new ByteArrayOutputStream();
+        final List<byte[]> arrays = new ArrayList<>();
+        int calls;
+
+        @Override
+        public long write(ByteBuffer[] sources, int offset, int length) {
+            calls++;
+            long written = 0;
+            for (int i = offset; i < offset + length && written < 1000; i++) {
+                if (sources[i].hasArray()) {
+                    arrays.add(sources[i].array());
+                }
+                while (sources[i].hasRemaining() && written < 1000) {
+                    received.write(sources[i].get());
+                    written++;
+                }
+            }
+            return written;
+        }
+
+        @Override
+        public long write(ByteBuffer[] sources) {
+            return write(sources, 0, sources.length);
+        }
+
+        @Override
+        public int write(ByteBuffer source) {
+            return (int) write(new ByteBuffer[] { source });
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    @Test
+    void gatheringWrite_passesLargePayloadsByReference() throws IOException {
+        byte[] payload = new byte[3000];
+        Arrays.fill(payload, (byte) 7);
+        VariableParamLength value = new VariableParamLength(payload);
+        ChunkedChannel channel = new ChunkedChannel();
+
+        assertThat(mapper.writeBytes(channel, value)).isEqualTo(3004);
+
+        assertThat(channel.received.toByteArray()).isEqualTo(mapper.writeBytes(value));
+        assertThat(channel.arrays).contains(payload);
+        assertThat(channel.calls).isEqualTo(4);
+    }
+
+    @Test
+    void gatheringWrite_copiesSmallPayloads() throws IOException {
+        ChunkedChannel channel = new ChunkedChannel();
+        Blob value = new Blob(ByteBuffer.wrap(new byte[] { 1, 2, 3 }));
+
+        assertThat(mapper.writeBytes(channel, value)).isEqualTo(6);
+        assertThat(mapper.writeBytes(channel, value)).isEqualTo(6);
+
+        assertThat(channel.received.toByteArray()).isEqualTo(new byte[] { 0, 3, 1, 2, 3, -1, 0, 3, 1, 2, 3, -1 });
+        assertThat(channel.arrays).doesNotContain(value.blob().array());
+    }
+
+    @Test
+    void gatheringWrite_rejectsNonBlockingChannel() throws IOException {
+        Pipe pipe = Pipe.open();
+        try (Pipe.SinkChannel sink = pipe.sink(); Pipe.SourceChannel source = pipe.source()) {
+            sink.configureBlocking(false);
+            assertThatThrownBy(() -> mapper.writeBytes(sink, new Blob(ByteBuffer.wrap(new byte[] { 1 }))))
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    void writeAll_stream() throws IOException {
+        List<Object> values = new ArrayList<>();
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        for (int i = 0; i < 20000; i++) {
+            Object value = i % 3 == 0 ? new VariableParamLength(new byte[] { (byte) i }) : new SingleVariable(i);
+            values.add(value);
+            expected.write(mapper.writeBytes(value));
+        }
+        values.add(null);
+        List<Integer> writes = new ArrayList<>();
+        ByteArrayOutputStream received = new ByteArrayOutputStream() {
+            @Override
+            public void write(byte[] b, int off, int len) {
+                writes.add(len);
+                super.write(b, off, len);
+            }
+        };
+
+        ResettableByteArrayOutputStream scratch = mapper.gatherScratch.get();
+
+        assertThat(mapper.writeAll(received, values)).isEqualTo(expected.size());
+
+        assertThat(received.toByteArray()).isEqualTo(expected.toByteArray());
+        assertThat(writes).hasSizeLessThanOrEqualTo(expected.size() / (1 << 15) + 1);
+        assertThat(mapper.gatherScratch.get()).isSameAs(scratch);
+    }
+
+    @Test
+    void writeAll_buffer() {
+        List<SingleVariable> values = List.of(new SingleVariable(1), new SingleVariable(2), new SingleVariable(3));
+        ByteBuffer buffer = ByteBuffer.allocate(30).position(2);
+
+        assertThat(mapper.writeAll(buffer, values)).isEqualTo(24);
+
+        assertThat(buffer.position()).isEqualTo(26);
+        assertThat(mapper.readBytes(buffer.array(), 18, 8, SingleVariable.class)).isEqualTo(new SingleVariable(3));
+        assertThatThrownBy(() -> mapper.writeAll(buffer, values)).isInstanceOf(BufferOverflowException.class);
+        assertThat(buffer.position()).isEqualTo(26);
+    }
+
+    @Test
+    void writeAll_bufferRolledBackAfterFlush() {
+        ByteMapperStatistics statistics = new ByteMapperStatistics();
+        ByteMapper counted = ByteMapper.builder().metrics(statistics).build();
+        List<Object> values = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            values.add(new SingleVariable(i));
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(36_000).position(1);
+
+        assertThatThrownBy(() -> counted.writeAll(buffer, values)).isInstanceOf(BufferOverflowException.class);
+        assertThat(buffer.position()).isEqualTo(1);
+        values.add("no format");
+        ByteBuffer large = ByteBuffer.allocate(50_000).position(1);
+        assertThatThrownBy(() -> counted.writeAll(large, values)).isInstanceOf(RuntimeException.class);
+        assertThat(large.position()).isEqualTo(1);
+        assertThat(statistics.of(SingleVariable.class).writes()).isZero();
+
+        assertThat(counted.writeAll(large, values.subList(0, 10))).isEqualTo(80);
+        assertThat(statistics.of(SingleVariable.class).writes()).isEqualTo(10);
+    }
+
+    @Test
+    void limits_fieldLengthFromSizeVariable() {
+        ByteMapper limited = ByteMapper.builder().limits(ByteLimits.builder().maxFieldLength(1024).build()).build();
+        byte[] bytes = { 0x7F, (byte) 0xFF, (byte) 0xAA, (byte) 0xBB };
+
+        assertThatThrownBy(() -> limited.readBytes(new ByteArrayInputStream(bytes), VariableParamLength.class))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("field length 32767 at stream index 0 exceeds the limit of 1024");
+    }
+
+    @Test
+    void limits_elementCount() {
+        ByteMapper limited = ByteMapper.builder().limits(ByteLimits.builder().maxListCount(100).build()).build();
+
+        assertThatThrownBy(() -> limited.readBytes(new byte[] { (byte) 200 }, CountedList.class))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("element count 200");
+    }
+
+    @Test
+    void limits_messageSizeAndPerType() {
+        ByteMapper limited = ByteMapper.builder().limits(ByteLimits.builder().maxMessageSize(6).build())
+                .typeLimit(CountedList.class, ByteLimits.NONE).build();
+        byte[] bytes = { 0, 3, (byte) 0xAA, (byte) 0xBB, 1, 2, 3 };
+
+        assertThatThrownBy(() -> limited.readBytes(bytes, VariableParamLength.class))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("message size 7");
+        assertThat(limited.readBytes(new byte[] { 0, 0 }, CountedList.class))
+                .isEqualTo(new CountedList(List.of(), List.of()));
+        assertThatThrownBy(() -> ByteLimits.builder().maxListCount(-1).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @ByteFormat("A6 **{?} :rest")
+    public record UnboundedRest(byte[] rest) {
+    }
+
+    @Test
+    void limits_restOfStream() {
+        ByteMapper limited = ByteMapper.builder().limits(ByteLimits.builder().maxFieldLength(20_000).build()).build();
+        byte[] bytes = new byte[30_001];
+        bytes[0] = (byte) 0xA6;
+
+        assertThatThrownBy(() -> limited.readBytes(new ByteArrayInputStream(bytes), UnboundedRest.class))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("field length 24576");
+        assertThat(mapper.readBytes(new ByteArrayInputStream(bytes), UnboundedRest.class).rest()).hasSize(30_000);
+        ByteMapper sized = ByteMapper.builder().limits(ByteLimits.builder().maxMessageSize(100).build()).build();
+        assertThatThrownBy(() -> sized.readBytes(new ByteArrayInputStream(bytes), UnboundedRest.class))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("message size 8193");
+    }
+
+    @ByteVariants({ TextMessage.class, PingMessage.class })
+    public interface Message {
+    }
+
+    @ByteFormat("01 ** :$n **{$n} :text")
+    public record TextMessage(String text) implements Message {
+    }
+
+    @ByteFormat("02 hi{2} :sequence")
+    public record PingMessage(short sequence) implements Message {
+    }
+
+    @Test
+    void limits_perVariantBaseType() {
+        ByteMapper limited = ByteMapper.builder()
+                .typeLimit(Message.class, ByteLimits.builder().maxFieldLength(4).build()).build();
+        byte[] bytes = limited.writeBytes(new TextMessage("hello"));
+
+        assertThatThrownBy(() -> limited.readBytes(bytes, Message.class)).isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("field length 5");
+        assertThat(limited.readBytes(limited.writeBytes(new TextMessage("hey")), Message.class))
+                .isEqualTo(new TextMessage("hey"));
+        ByteMapper overridden = ByteMapper.builder()
+                .typeLimit(Message.class, ByteLimits.builder().maxFieldLength(4).build())
+                .typeLimit(TextMessage.class, ByteLimits.NONE).build();
+        assertThat(overridden.readBytes(bytes, Message.class)).isEqualTo(new TextMessage("hello"));
+    }
+
+    @ByteFormat("""
+            hi{2} :id
+            hi{4} :$size
+            **{$size} :firmware
+            """)
+    public record Upload(int id, InputStream firmware) {
+    }
+
+    @ByteFormat("F0 **{?} :data")
+    public record ChannelUpload(ReadableByteChannel data) {
+    }
+
+    @ByteFormat("**{4} :data ** :flag")
+    public record MisplacedStream(InputStream data, int flag) {
+    }
+
+    @Test
+    void payloadStream_readLazily() throws IOException {
+        byte[] firmware = new byte[100_000];
+        Arrays.fill(firmware, (byte) 0x5A);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        mapper.writeBytes(bytes, new Upload(1, new ByteArrayInputStream(firmware)));
+        mapper.writeBytes(bytes, new Upload(2, new ByteArrayInputStream(new byte[] { 1, 2, 3 })));
+        assertThat(bytes.size()).isEqualTo(6 + 100_000 + 6 + 3);
+        InputStream input = new ByteArrayInputStream(bytes.toByteArray());
+
+        Upload first = mapper.readBytes(input, Upload.class);
+
+        assertThat(first.id()).isEqualTo(1);
+        assertThat(input.available()).isEqualTo(100_000 + 9);
+        assertThatThrownBy(() -> mapper.readBytes(input, Upload.class)).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("100000 bytes");
+        assertThat(first.firmware().readNBytes(10)).containsOnly(0x5A);
+        first.firmware().close();
+        Upload second = mapper.readBytes(input, Upload.class);
+        assertThat(second.id()).isEqualTo(2);
+        assertThat(second.firmware().readAllBytes()).containsExactly(1, 2, 3);
+        assertThat(second.firmware().read()).isEqualTo(-1);
+        assertThat(mapper.payloads.pending()).isZero();
+    }
+
+    @Test
+    void payloadStream_abandonedWithItsSource() throws InterruptedException {
+        abandonUpload();
+        assertThat(mapper.payloads.pending()).isPositive();
+        for (int i = 0; i < 50 && mapper.payloads.pending() > 0; i++) {
+            System.gc();
+            Thread.sleep(10);
+        }
+        assertThat(mapper.payloads.pending()).isZero();
+        abandonUpload();
+        assertThat(mapper.payloads.pending()).isPositive();
+    }
+
+    private void abandonUpload() {
+        byte[] bytes = mapper.writeBytes(new Upload(1, new ByteArrayInputStream(new byte[1000])));
+        assertThat(mapper.readBytes(new ByteArrayInputStream(bytes), Upload.class).id()).isEqualTo(1);
+    }
+
+    @Test
+    void payloadStream_channelForRestBytes() throws IOException {
+        ChannelUpload upload = mapper.readBytes(new byte[] { (byte) 0xF0, 7, 8, 9 }, ChannelUpload.class);
+        ByteBuffer data = ByteBuffer.allocate(8);
+        while (upload.data().read(data) >= 0) {
+        }
+        assertThat(data.flip()).isEqualTo(ByteBuffer.wrap(new byte[] { 7, 8, 9 }));
+
+        ChannelUpload copy = new ChannelUpload(Channels.newChannel(new ByteArrayInputStream(new byte[] { 4, 5 })));
+        assertThat(mapper.writeBytes(copy)).containsExactly(0xF0, 4, 5);
+    }
+
+    @Test
+    void payloadStream_mustBeLast() {
+        assertThatThrownBy(() -> mapper.readBytes(new byte[5], MisplacedStream.class))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("last placeholder");
+    }
+}
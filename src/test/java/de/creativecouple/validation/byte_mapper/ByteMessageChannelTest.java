@@ -0,0 +1,114 @@
+package de.creativecouple.validation.byte_mapper;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteMessageChannelTest {
+
+    @ByteFormat("51 hi{4} :id ** :$n **{$n} :text")
+    public record Request(int id, String text) {
+    }
+
+    @ByteFormat("52 hi{2} :id hi{4} :length")
+    public record Response(short id, int length) {
+    }
+
+    private final ByteMapper mapper = new ByteMapper();
+    private ServerSocketChannel server;
+    private SocketChannel client;
+    private SocketChannel accepted;
+
+    @BeforeEach
+    void connect() throws IOException {
+        server = ServerSocketChannel.open().bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = SocketChannel.open(server.getLocalAddress());
+        accepted = server.accept();
+    }
+
+    @AfterEach
+    void disconnect() throws IOException {
+        client.close();
+        accepted.close();
+        server.close();
+    }
+
+    @Test
+    void receive_splitAcrossWrites() throws IOException {
+        ByteMessageChannel channel = ByteMessageChannel.builder().channel(accepted).mapper(mapper).bufferSize(8)
+                .build();
+        byte[] first = mapper.writeBytes(new Request(1, "hello"));
+        byte[] second = mapper.writeBytes(new Request(2, "a longer text than the buffer"));
+        for (byte b : first) {
+            client.write(ByteBuffer.wrap(new byte[] { b }));
+        }
+        client.write(ByteBuffer.wrap(second));
+        client.write(ByteBuffer.wrap(second, 0, 3));
+        client.shutdownOutput();
+        assertThat(channel.receive(Request.class)).isEqualTo(new Request(1, "hello"));
+        assertThat(channel.receive(Request.class)).isEqualTo(new Request(2, "a longer text than the buffer"));
+        assertThatThrownBy(() -> channel.receive(Request.class)).isInstanceOf(EOFException.class);
+    }
+
+    @Test
+    void request_pipelinedWithResponsesOutOfOrder() throws Exception {
+        ByteMessageChannel serverSide = ByteMessageChannel.builder().channel(accepted).mapper(mapper).build();
+        CompletableFuture<Void> serving = CompletableFuture.runAsync(() -> {
+            try {
+                List<Request> requests = new ArrayList<>();
+                for (Request request; (request = serverSide.receive(Request.class)) != null;) {
+                    requests.add(request);
+                    if (requests.size() == 3) {
+                        Collections.reverse(requests);
+                        for (Request r : requests) {
+                            serverSide.send(new Response((short) r.id(), r.text().length()));
+                        }
+                        requests.clear();
+                    }
+                }
+            } catch (IOException e) {
+                throw new CompletionException(e);
+            }
+        });
+        try (ByteMessageChannel channel = ByteMessageChannel.builder().channel(client).mapper(mapper).correlation("id")
+                .responseType(Response.class).build()) {
+            CompletableFuture<Response> a = channel.request(new Request(7, "a"), Response.class);
+            CompletableFuture<Response> b = channel.request(new Request(8, "bb"), Response.class);
+            assertThatThrownBy(() -> channel.request(new Request(8, "again"), Response.class))
+                    .isInstanceOf(IllegalArgumentException.class);
+            CompletableFuture<Response> c = channel.request(new Request(9, "ccc"), Response.class);
+            assertThat(a.get(5, TimeUnit.SECONDS)).isEqualTo(new Response((short) 7, 1));
+            assertThat(b.get(5, TimeUnit.SECONDS)).isEqualTo(new Response((short) 8, 2));
+            assertThat(c.get(5, TimeUnit.SECONDS)).isEqualTo(new Response((short) 9, 3));
+            client.shutdownOutput();
+            serving.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    void request_failsWhenConnectionCloses() throws Exception {
+        try (ByteMessageChannel channel = ByteMessageChannel.builder().channel(client).correlation("id")
+                .responseType(Response.class).build()) {
+            CompletableFuture<Response> response = channel.request(new Request(1, "x"), Response.class);
+            accepted.shutdownOutput();
+            assertThatThrownBy(() -> response.get(5, TimeUnit.SECONDS)).hasCauseInstanceOf(EOFException.class);
+        }
+    }
+}
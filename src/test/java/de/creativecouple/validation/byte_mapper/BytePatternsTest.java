@@ -1,11 +1,17 @@
 package de.creativecouple.validation.byte_mapper;
 
+import lombok.With;
 import org.junit.jupiter.api.Test;
 
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.CONSTANT_BYTES;
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.GROUP_BEGIN;
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.GROUP_END;
-import static de.creativecouple.validation.byte_mapper.BytePatternEventType.PLACEHOLDER;
+import java.util.stream.IntStream;
+
+import static de.creativecouple.validation.byte_mapper.BytePattern.BIG_ENDIAN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.CONSTANT_BYTES;
+import static de.creativecouple.validation.byte_mapper.BytePattern.DEFAULT_ORDER;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_BEGIN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.GROUP_END;
+import static de.creativecouple.validation.byte_mapper.BytePattern.LITTLE_ENDIAN;
+import static de.creativecouple.validation.byte_mapper.BytePattern.PLACEHOLDER;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
@@ -13,7 +19,7 @@ public class BytePatternsTest {
 
     @Test
     void parseEmptyFormat() {
-        assertThat(BytePatterns.parse("")).isEmpty();
+        assertThat(events(BytePatterns.parse(""))).isEmpty();
     }
 
     @Test
@@ -22,8 +28,8 @@ public class BytePatternsTest {
                 00 11 22 //
                 33 44 55 // some constant
                 """;
-        assertThat(BytePatterns.parse(hexString))
-                .containsExactly(event(CONSTANT_BYTES, true, 0x554433221100L).withSize(new LinearSizeValue(6, 0, null))
+        assertThat(events(BytePatterns.parse(hexString)))
+                .containsExactly(event(CONSTANT_BYTES, DEFAULT_ORDER, 0x554433221100L).withSize(new LinearSizeValue(6, 0, null))
                         .withSource(new BytePatternSource(hexString, 1, 0, "00 11 22 33 44 55")));
     }
 
@@ -34,10 +40,10 @@ public class BytePatternsTest {
                 44 55 66 77
                   88 99 aa bb // white space on purpose
                 cc""";
-        assertThat(BytePatterns.parse(hexString)).containsExactly(
-                event(CONSTANT_BYTES, true, 0x7766554433221100L).withSize(new LinearSizeValue(8, 0, null))
+        assertThat(events(BytePatterns.parse(hexString))).containsExactly(
+                event(CONSTANT_BYTES, DEFAULT_ORDER, 0x7766554433221100L).withSize(new LinearSizeValue(8, 0, null))
                         .withSource(new BytePatternSource(hexString, 1, 0, "00 11 22 33 44 55 66 77")),
-                event(CONSTANT_BYTES, true, 0xccbbaa9988L).withSize(new LinearSizeValue(5, 0, null))
+                event(CONSTANT_BYTES, DEFAULT_ORDER, 0xccbbaa9988L).withSize(new LinearSizeValue(5, 0, null))
                         .withSource(new BytePatternSource(hexString, 3, 2, "88 99 aa bb cc")));
     }
 
@@ -46,8 +52,8 @@ public class BytePatternsTest {
         String hexString = """
                 **  ** \t ** // normalize whitespaces in pattern
                 """;
-        assertThat(BytePatterns.parse(hexString))
-                .containsExactly(event(PLACEHOLDER, null, null).withSize(new LinearSizeValue(3, 0, null))
+        assertThat(events(BytePatterns.parse(hexString)))
+                .containsExactly(event(PLACEHOLDER, DEFAULT_ORDER, null).withSize(new LinearSizeValue(3, 0, null))
                         .withSource(new BytePatternSource(hexString, 1, 0, "** ** **")));
     }
 
@@ -77,10 +83,10 @@ public class BytePatternsTest {
                 hi lo : // ignore parameter
                 lo **{2} hi :foobar
                 """;
-        assertThat(BytePatterns.parse(hexString)).containsExactly(
-                event(PLACEHOLDER, false, "").withSize(new LinearSizeValue(2, 0, null))
+        assertThat(events(BytePatterns.parse(hexString))).containsExactly(
+                event(PLACEHOLDER, BIG_ENDIAN, null).withSize(new LinearSizeValue(2, 0, null))
                         .withSource(new BytePatternSource(hexString, 1, 0, "hi lo :")),
-                event(PLACEHOLDER, true, "foobar").withSize(new LinearSizeValue(4, 0, null))
+                event(PLACEHOLDER, LITTLE_ENDIAN, "foobar").withSize(new LinearSizeValue(4, 0, null))
                         .withSource(new BytePatternSource(hexString, 2, 0, "lo **{2} hi :foobar")));
     }
 
@@ -93,16 +99,16 @@ public class BytePatternsTest {
                 **{?} ** ** :rest
                 **{6} :suffix
                 """;
-        assertThat(BytePatterns.parse(hexString)).containsExactly(
-                event(PLACEHOLDER, false, "$size").withSize(new LinearSizeValue(2, 0, null))
+        assertThat(events(BytePatterns.parse(hexString))).containsExactly(
+                event(PLACEHOLDER, BIG_ENDIAN, "$size").withSize(new LinearSizeValue(2, 0, null))
                         .withSource(new BytePatternSource(hexString, 1, 0, "hi lo :$size")),
-                event(PLACEHOLDER, null, "foobar").withSize(new LinearSizeValue(2, 4, "$size"))
+                event(PLACEHOLDER, DEFAULT_ORDER, "foobar").withSize(new LinearSizeValue(2, 4, "$size"))
                         .withSource(new BytePatternSource(hexString, 2, 0, "** ** **{$size*4} :foobar")),
-                event(PLACEHOLDER, null, "data").withSize(new LinearSizeValue(0, 1, "foobar"))
+                event(PLACEHOLDER, DEFAULT_ORDER, "data").withSize(new LinearSizeValue(0, 1, "foobar"))
                         .withSource(new BytePatternSource(hexString, 3, 0, "**{foobar} :data")),
-                event(PLACEHOLDER, null, "rest").withSize(new LinearSizeValue(-6, 1, "?"))
+                event(PLACEHOLDER, DEFAULT_ORDER, "rest").withSize(new LinearSizeValue(-6, 1, "?"))
                         .withSource(new BytePatternSource(hexString, 4, 0, "**{?} ** ** :rest")),
-                event(PLACEHOLDER, null, "suffix").withSize(new LinearSizeValue(6, 0, null))
+                event(PLACEHOLDER, DEFAULT_ORDER, "suffix").withSize(new LinearSizeValue(6, 0, null))
                         .withSource(new BytePatternSource(hexString, 5, 0, "**{6} :suffix")));
     }
 
@@ -113,16 +119,16 @@ public class BytePatternsTest {
                 [11
                 hi{?} :test]{$size}
                 """;
-        assertThat(BytePatterns.parse(hexString)).containsExactly(
-                event(PLACEHOLDER, null, "$size").withSize(new LinearSizeValue(2, 0, null))
+        assertThat(events(BytePatterns.parse(hexString))).containsExactly(
+                event(PLACEHOLDER, DEFAULT_ORDER, "$size").withSize(new LinearSizeValue(2, 0, null))
                         .withSource(new BytePatternSource(hexString, 1, 0, "** ** :$size")),
-                event(GROUP_BEGIN, null, null).withSize(new LinearSizeValue(0, 1, "$size"))
+                event(GROUP_BEGIN, DEFAULT_ORDER, null).withSize(new LinearSizeValue(0, 1, "$size"))
                         .withSource(new BytePatternSource(hexString, 2, 0, "[")),
-                event(CONSTANT_BYTES, true, (long) 0x11).withSize(new LinearSizeValue(1, 0, null))
+                event(CONSTANT_BYTES, DEFAULT_ORDER, (long) 0x11).withSize(new LinearSizeValue(1, 0, null))
                         .withSource(new BytePatternSource(hexString, 2, 1, "11")),
-                event(PLACEHOLDER, false, "test").withSize(new LinearSizeValue(0, 1, "?"))
+                event(PLACEHOLDER, BIG_ENDIAN, "test").withSize(new LinearSizeValue(0, 1, "?"))
                         .withSource(new BytePatternSource(hexString, 3, 0, "hi{?} :test")),
-                event(GROUP_END, null, null).withSize(new LinearSizeValue(0, 1, "$size"))
+                event(GROUP_END, DEFAULT_ORDER, null).withSize(new LinearSizeValue(0, 1, "$size"))
                         .withSource(new BytePatternSource(hexString, 3, 11, "]{$size}")));
     }
 
@@ -134,18 +140,18 @@ public class BytePatternsTest {
                 hi{?} :test]{$size}
                 aa bb cc // suffix
                 """;
-        assertThat(BytePatterns.parse(hexString)).containsExactly(
-                event(PLACEHOLDER, null, "$size").withSize(new LinearSizeValue(2, 0, null))
+        assertThat(events(BytePatterns.parse(hexString))).containsExactly(
+                event(PLACEHOLDER, DEFAULT_ORDER, "$size").withSize(new LinearSizeValue(2, 0, null))
                         .withSource(new BytePatternSource(hexString, 1, 0, "** ** :$size")),
-                event(GROUP_BEGIN, null, null).withSize(new LinearSizeValue(0, 1, "$size"))
+                event(GROUP_BEGIN, DEFAULT_ORDER, null).withSize(new LinearSizeValue(0, 1, "$size"))
                         .withSource(new BytePatternSource(hexString, 2, 0, "[")),
-                event(CONSTANT_BYTES, true, (long) 0x11).withSize(new LinearSizeValue(1, 0, null))
+                event(CONSTANT_BYTES, DEFAULT_ORDER, (long) 0x11).withSize(new LinearSizeValue(1, 0, null))
                         .withSource(new BytePatternSource(hexString, 2, 1, "11")),
-                event(PLACEHOLDER, false, "test").withSize(new LinearSizeValue(0, 1, "?"))
+                event(PLACEHOLDER, BIG_ENDIAN, "test").withSize(new LinearSizeValue(0, 1, "?"))
                         .withSource(new BytePatternSource(hexString, 3, 0, "hi{?} :test")),
-                event(GROUP_END, null, null).withSize(new LinearSizeValue(0, 1, "$size"))
+                event(GROUP_END, DEFAULT_ORDER, null).withSize(new LinearSizeValue(0, 1, "$size"))
                         .withSource(new BytePatternSource(hexString, 3, 11, "]{$size}")),
-                event(CONSTANT_BYTES, true, (long) 0xccbbaa).withSize(new LinearSizeValue(3, 0, null))
+                event(CONSTANT_BYTES, DEFAULT_ORDER, (long) 0xccbbaa).withSize(new LinearSizeValue(3, 0, null))
                         .withSource(new BytePatternSource(hexString, 4, 0, "aa bb cc")));
     }
 
@@ -181,7 +187,54 @@ public class BytePatternsTest {
                 .hasMessageContaining("group end expression misses group start");
     }
 
-    private BytePatternEvent event(BytePatternEventType type, Boolean littleEndian, Object value) {
-        return new BytePatternEvent(type, null, littleEndian, value, null);
+    @Test
+    void parseAdjacentTokens() {
+        String hexString = "0011**{2}**:foo[22]{1}";
+        assertThat(events(BytePatterns.parse(hexString))).containsExactly(
+                event(CONSTANT_BYTES, DEFAULT_ORDER, 0x1100L).withSize(new LinearSizeValue(2, 0, null))
+                        .withSource(new BytePatternSource(hexString, 1, 0, "00 11")),
+                event(PLACEHOLDER, DEFAULT_ORDER, "foo").withSize(new LinearSizeValue(3, 0, null))
+                        .withSource(new BytePatternSource(hexString, 1, 4, "**{2} ** :foo")),
+                event(GROUP_BEGIN, DEFAULT_ORDER, null).withSize(new LinearSizeValue(1, 0, null))
+                        .withSource(new BytePatternSource(hexString, 1, 15, "[")),
+                event(CONSTANT_BYTES, DEFAULT_ORDER, 0x22L).withSize(new LinearSizeValue(1, 0, null))
+                        .withSource(new BytePatternSource(hexString, 1, 16, "22")),
+                event(GROUP_END, DEFAULT_ORDER, null).withSize(new LinearSizeValue(1, 0, null))
+                        .withSource(new BytePatternSource(hexString, 1, 18, "]{1}")));
+    }
+
+    @Test
+    void parseSharesSymbols() {
+        BytePattern pattern = BytePatterns.parse("""
+                ** :$size
+                **{$size} :data
+                [ ** ]{$size}
+                """);
+        assertThat(pattern.symbols).containsExactly("$size", "data");
+        assertThat(pattern.names).containsExactly(0, 1, -1, -1, -1);
+        assertThat(pattern.sizeVariables).containsExactly(-1, 0, 0, -1, 0);
+    }
+
+    @Test
+    void parseIllegalCharacter() {
+        assertThatThrownBy(() -> BytePatterns.parse("00 ]"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("unexpected token ']' at line 1 pos 3");
+    }
+
+    @With
+    private record Event(int opcode, LinearSizeValue size, int byteOrder, Object value, BytePatternSource source) {
+    }
+
+    private static Event[] events(BytePattern pattern) {
+        return IntStream.range(0, pattern.length)
+                .mapToObj(i -> new Event(pattern.opcodes[i], pattern.size(i), pattern.byteOrders[i],
+                        pattern.opcodes[i] == CONSTANT_BYTES ? (Object) pattern.constants[i] : pattern.name(i),
+                        pattern.source(i)))
+                .toArray(Event[]::new);
+    }
+
+    private Event event(int opcode, int byteOrder, Object value) {
+        return new Event(opcode, null, byteOrder, value, null);
     }
 }
\ No newline at end of file
@@ -0,0 +1,107 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteRecordLogTest.Entry;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteRecordFileTest {
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    @TempDir
+    Path dir;
+
+    private Path log(String name, boolean lengthPrefixed, int indexInterval, int count) throws IOException {
+        Path file = dir.resolve(name);
+        try (ByteRecordLog log = ByteRecordLog.builder().path(file).chunkSize(64).lengthPrefixed(lengthPrefixed)
+                .indexInterval(indexInterval).build()) {
+            for (int i = 0; i < count; i++) {
+                log.append(new Entry(i, new byte[1 + i % 5]));
+            }
+        }
+        return file;
+    }
+
+    @Test
+    void get_dense() throws IOException {
+        try (ByteRecordFile file = ByteRecordFile.open(log("dense.log", false, 1, 100), mapper)) {
+            assertThat(file.records()).isEqualTo(100);
+            assertThat(file.get(0, Entry.class).id()).isZero();
+            assertThat(file.get(57, Entry.class).payload()).hasSize(3);
+            assertThat(file.get(99, Entry.class).id()).isEqualTo(99);
+            assertThatThrownBy(() -> file.get(100, Entry.class)).isInstanceOf(IndexOutOfBoundsException.class);
+        }
+    }
+
+    @Test
+    void get_sparse() throws IOException {
+        for (boolean lengthPrefixed : new boolean[] { false, true }) {
+            try (ByteRecordFile file = ByteRecordFile
+                    .open(log("sparse" + lengthPrefixed + ".log", lengthPrefixed, 16, 70), mapper)) {
+                assertThat(file.records()).isEqualTo(70);
+                for (long n : new long[] { 0, 15, 16, 31, 64, 69 }) {
+                    assertThat(file.get(n, Entry.class).id()).isEqualTo(n);
+                }
+            }
+        }
+    }
+
+    @Test
+    void get_concurrently() throws IOException {
+        try (ByteRecordFile file = ByteRecordFile.open(log("shared.log", true, 4, 1000), mapper)) {
+            assertThat(LongStream.range(0, 1000).parallel().allMatch(n -> {
+                try {
+                    return file.get(n, Entry.class).id() == n;
+                } catch (IOException e) {
+                    throw new RuntimeException(e);
+                }
+            })).isTrue();
+        }
+    }
+
+    @ByteFormat("A6 hi{4} :id **{?} :rest")
+    public record Tail(int id, byte[] rest) {
+    }
+
+    @Test
+    void get_whileLogIsOpen() throws IOException {
+        Path path = dir.resolve("open.log");
+        try (ByteRecordLog log = ByteRecordLog.builder().path(path).chunkSize(4096).indexInterval(2).build()) {
+            log.append(new Tail(1, new byte[] { 1, 2 }));
+            log.append(new Tail(2, new byte[] { 3 }));
+            log.append(new Tail(3, new byte[] { 4, 5, 6 }));
+            log.force();
+            log.append(new Tail(4, new byte[] { 7 }));
+            try (ByteRecordFile file = ByteRecordFile.open(path, mapper)) {
+                assertThat(file.records()).isEqualTo(3);
+                assertThat(file.get(2, Tail.class).rest()).containsExactly(4, 5, 6);
+            }
+        }
+        assertThatThrownBy(() -> ByteRecordFile.open(log("unindexed.log", false, 0, 1), mapper))
+                .isInstanceOf(IllegalArgumentException.class).hasMessageContaining("not indexed");
+    }
+
+    @Test
+    void reopenedLogContinuesIndex() throws IOException {
+        Path path = log("continued.log", false, 3, 5);
+        try (ByteRecordLog log = ByteRecordLog.builder().path(path).indexInterval(3).build()) {
+            assertThat(log.records()).isEqualTo(5);
+            log.append(new Entry(5, new byte[] { 1 }));
+            log.append(new Entry(6, new byte[] { 2 }));
+        }
+        try (ByteRecordFile file = ByteRecordFile.open(path, mapper)) {
+            assertThat(file.records()).isEqualTo(7);
+            assertThat(file.get(6, Entry.class).payload()).containsExactly(2);
+            assertThat(file.get(4, Entry.class).id()).isEqualTo(4);
+        }
+        assertThatThrownBy(() -> ByteRecordLog.builder().path(path).indexInterval(2).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,134 @@
+package de.creativecouple.validation.byte_mapper;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ByteRecordLogTest {
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    @TempDir
+    Path dir;
+
+    @ByteFormat("A5 hi{4} :id ** :$n **{$n} :payload")
+    public record Entry(int id, byte[] payload) {
+    }
+
+    @Test
+    void append() throws IOException {
+        Path file = dir.resolve("plain.log");
+        try (ByteRecordLog log = ByteRecordLog.builder().path(file).mapper(mapper).build()) {
+            assertThat(log.append(new Entry(1, new byte[] { 7 }))).isZero();
+            assertThat(log.append(new Entry(2, new byte[0]))).isEqualTo(7);
+            assertThat(log.size()).isEqualTo(13);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        assertThat(bytes).hasSize(13);
+        assertThat(mapper.readBytes(bytes, 0, 7, Entry.class).id()).isEqualTo(1);
+        assertThat(mapper.readBytes(bytes, 7, 6, Entry.class).id()).isEqualTo(2);
+    }
+
+    @Test
+    void append_lengthPrefixedAcrossChunks() throws IOException {
+        Path file = dir.resolve("framed.log");
+        try (ByteRecordLog log = ByteRecordLog.builder().path(file).chunkSize(16).lengthPrefixed(true).build()) {
+            for (int i = 1; i <= 10; i++) {
+                log.append(new Entry(i, new byte[i]));
+            }
+            log.append(new Entry(99, new byte[40]));
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        int count = 0;
+        while (buffer.hasRemaining()) {
+            int length = buffer.getInt();
+            Entry entry = mapper.readBytes(buffer.slice(buffer.position(), length), Entry.class);
+            assertThat(entry.payload()).hasSize(entry.id() == 99 ? 40 : entry.id());
+            buffer.position(buffer.position() + length);
+            count++;
+        }
+        assertThat(count).isEqualTo(11);
+    }
+
+    @Test
+    void append_unencodableBetweenRecords() throws IOException {
+        Path file = dir.resolve("failed.log");
+        try (ByteRecordLog log = ByteRecordLog.builder().path(file).lengthPrefixed(true).build()) {
+            log.append(new Entry(1, new byte[] { 1 }));
+            assertThatThrownBy(() -> log.append("no format")).isInstanceOf(RuntimeException.class);
+            assertThat(log.size()).isEqualTo(11);
+            assertThat(log.records()).isEqualTo(1);
+            assertThat(log.append(new Entry(2, new byte[] { 2 }))).isEqualTo(11);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertThat(buffer.remaining()).isEqualTo(22);
+        assertThat(buffer.getInt(11)).isEqualTo(7);
+        assertThat(mapper.readBytes(buffer.slice(15, 7), Entry.class).id()).isEqualTo(2);
+    }
+
+    @Test
+    void append_reopened() throws IOException {
+        Path file = dir.resolve("reopened.log");
+        try (ByteRecordLog log = ByteRecordLog.builder().path(file).forceEveryRecords(1).build()) {
+            log.append(new Entry(1, new byte[] { 1, 2 }));
+        }
+        try (ByteRecordLog log = ByteRecordLog.builder().path(file).forceIntervalMillis(1).build()) {
+            assertThat(log.size()).isEqualTo(8);
+            assertThat(log.append(new Entry(2, new byte[] { 3 }))).isEqualTo(8);
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        assertThat(bytes).hasSize(15);
+        assertThat(mapper.readBytes(bytes, 8, 7, Entry.class).payload()).containsExactly(3);
+    }
+
+    @Test
+    void append_reopenedWithoutClose() throws IOException {
+        Path file = dir.resolve("crashed.log");
+        ByteRecordLog crashed = ByteRecordLog.builder().path(file).chunkSize(64).lengthPrefixed(true).build();
+        crashed.append(new Entry(1, new byte[] { 1 }));
+        crashed.append(new Entry(2, new byte[] { 2 }));
+        crashed.force();
+        crashed.append(new Entry(3, new byte[] { 3 }));
+        assertThat(Files.size(file)).isEqualTo(64);
+
+        try (ByteRecordLog log = ByteRecordLog.builder().path(file).chunkSize(64).lengthPrefixed(true).build()) {
+            assertThat(log.size()).isEqualTo(22);
+            assertThat(log.records()).isEqualTo(2);
+            assertThat(log.append(new Entry(4, new byte[] { 4 }))).isEqualTo(22);
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        assertThat(buffer.remaining()).isEqualTo(33);
+        for (int id : new int[] { 1, 2, 4 }) {
+            int length = buffer.getInt();
+            assertThat(mapper.readBytes(buffer.slice(buffer.position(), length), Entry.class).id()).isEqualTo(id);
+            buffer.position(buffer.position() + length);
+        }
+        assertThatThrownBy(() -> ByteRecordLog.builder().path(file).build())
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void append_closed() throws IOException {
+        ByteRecordLog log = ByteRecordLog.builder().path(dir.resolve("closed.log")).build();
+        log.close();
+        log.close();
+        assertThatThrownBy(() -> log.append(new Entry(1, new byte[0]))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void writeBytes_bufferOverflow() {
+        ByteBuffer buffer = ByteBuffer.allocate(4);
+        assertThatThrownBy(() -> mapper.writeBytes(buffer, new Entry(1, new byte[0])))
+                .isInstanceOf(BufferOverflowException.class);
+        assertThat(buffer.position()).isZero();
+        assertThat(mapper.writeBytes(ByteBuffer.allocate(6), new Entry(1, new byte[0]))).isEqualTo(6);
+    }
+}
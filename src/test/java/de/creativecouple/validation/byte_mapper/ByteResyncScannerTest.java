@@ -0,0 +1,81 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SingleVariable;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.VariableParamLength;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteResyncScannerTest {
+
+    @ByteFormat("** :value")
+    public record NoConstants(int value) {
+    }
+
+    @ByteFormat("7E ** :$size **{$size} :body 7F")
+    public record Framed(byte[] body) {
+    }
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    @Test
+    void findRecordAfterGarbage() {
+        byte[] bytes = { 0, 16, 32, 0, 16, 32, 48, 0, 0, 0, 7 };
+        int start = mapper.resync(bytes, 0, SingleVariable.class);
+        assertThat(start).isEqualTo(3);
+        assertThat(mapper.readBytes(bytes, start, 8, SingleVariable.class)).isEqualTo(new SingleVariable(7));
+    }
+
+    @Test
+    void rejectCandidatesFailingValidation() {
+        byte[] bytes = { 0x7E, 2, 1, 0x7E, 1, 9, 0x7F, 0 };
+        assertThat(mapper.resync(bytes, 0, Framed.class)).isEqualTo(3);
+        assertThat(mapper.resync(bytes, 4, Framed.class)).isEqualTo(-1);
+        assertThat(mapper.resync(new byte[] { 1, 2, 0, 50, (byte) 0xAA, (byte) 0xBB, 1 }, 0, VariableParamLength.class))
+                .isEqualTo(2);
+    }
+
+    @Test
+    void findVariantsByDiscriminatorAtOffset() {
+        byte[] bytes = { 0x42, 0x13, 7, 0, 11, 0x42, 0x13, 0, 0, 0, (byte) 0xAA };
+        assertThat(mapper.resync(bytes, 0, SameSizeVariant.class)).isEqualTo(3);
+        assertThat(mapper.resync(bytes, 4, SameSizeVariant.class)).isEqualTo(7);
+        assertThat(mapper.resync(ByteBuffer.wrap(bytes), 8, SameSizeVariant.class)).isEqualTo(-1);
+    }
+
+    @Test
+    void acceptIncompleteRecordAtEnd() {
+        byte[] bytes = { 1, 2, 3, 0, 16, 32, 48, 0 };
+        assertThat(mapper.resync(bytes, 0, SingleVariable.class)).isEqualTo(3);
+        assertThat(mapper.resync(bytes, bytes.length, SingleVariable.class)).isEqualTo(-1);
+        assertThat(mapper.resync(bytes, 0, NoConstants.class)).isEqualTo(0);
+    }
+
+    @Test
+    void findEveryRecordInNoise() {
+        Random random = new Random(42);
+        ByteBuffer buffer = ByteBuffer.allocate(4096);
+        int records = 0;
+        while (buffer.remaining() > 20) {
+            byte[] noise = new byte[random.nextInt(10)];
+            random.nextBytes(noise);
+            for (int i = 0; i < noise.length; i++) {
+                noise[i] = (byte) (noise[i] & 0x0F);
+            }
+            buffer.put(noise).put(mapper.writeBytes(new SingleVariable(records++)));
+        }
+        buffer.flip();
+
+        int found = 0;
+        for (int pos = mapper.resync(buffer, 0, SingleVariable.class); pos >= 0; pos = mapper.resync(buffer, pos + 8,
+                SingleVariable.class)) {
+            assertThat(mapper.validate(buffer.duplicate().position(pos), SingleVariable.class).ok()).isTrue();
+            found++;
+        }
+        assertThat(found).isEqualTo(records);
+    }
+}
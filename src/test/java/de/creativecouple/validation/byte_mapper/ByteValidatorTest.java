@@ -0,0 +1,149 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.RestBytesLength;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.RestSizeList;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant2;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SingleVariable;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.VariableParamLength;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.WithSameSizeVariant;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.GROUP_LENGTH_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.NO_VARIANT_MATCHED;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.PATTERN_MISMATCH;
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.UNEXPECTED_END;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteValidatorTest {
+
+    @ByteFormat("[ ** :$size ** :value ]{$size} 00")
+    public record SelfSizedGroup(int value) {
+    }
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    private static final byte[] REST_SIZE_LIST = { 0x33, 0x11, 5, 0x22, 0, 1, 4, 4, 4, 4, 0, 16, 32, 48, 0, 0, 0, 3, 0,
+            16, 32, 48, 0, 0, 0, 2, 0, 16, 32, 48, 0, 0, 0, 1, 0, 16, 32, 48, 0, 0, 0, 0, -2, -1 };
+
+    @Test
+    void validateWellFormedRecords() {
+        assertThat(mapper.validate(new byte[] { 0, 16, 32, 48, 0, 0, 0, 1 }, SingleVariable.class).length())
+                .isEqualTo(8);
+        assertThat(mapper.validate(new byte[] { 0, 2, (byte) 0xAA, (byte) 0xBB, 1, 2 }, VariableParamLength.class)
+                .length()).isEqualTo(6);
+        assertThat(mapper.validate(new byte[] { 9, 9, (byte) 0xAA, (byte) 0xBB, 7, 7, 1, 2, 3 }, RestBytesLength.class)
+                .length()).isEqualTo(9);
+        assertThat(mapper.validate(REST_SIZE_LIST, RestSizeList.class).length()).isEqualTo(REST_SIZE_LIST.length);
+        assertThat(mapper.validate(new byte[] { 0, 11, 0x42, 0x13 }, WithSameSizeVariant.class).ok()).isTrue();
+    }
+
+    @Test
+    void validateReportsMatchedVariant() {
+        ByteValidation result = mapper.validate(new byte[] { 0, 11, 0x42, 0x13 }, SameSizeVariant.class);
+        assertThat(result.ok()).isTrue();
+        assertThat(result.type()).isEqualTo(SimpleVariant2.class);
+    }
+
+    @Test
+    void validateReportsFailureOffsetAndReason() {
+        assertFailure(mapper.validate(new byte[] { 0, 16, 32, 49, 0, 0, 0, 1 }, SingleVariable.class), PATTERN_MISMATCH,
+                3);
+        assertFailure(mapper.validate(new byte[] { 0, 16, 32, 48, 0, 0 }, SingleVariable.class), UNEXPECTED_END, 6);
+        assertFailure(mapper.validate(new byte[] { 0, 9, (byte) 0xAA, (byte) 0xBB, 1, 2 }, VariableParamLength.class),
+                UNEXPECTED_END, 6);
+        assertFailure(mapper.validate(new byte[] { 1, 2, 3, 4 }, SameSizeVariant.class), NO_VARIANT_MATCHED, 0);
+        assertFailure(mapper.validate(new byte[] { 1, 2, 3, 4 }, WithSameSizeVariant.class), NO_VARIANT_MATCHED, 0);
+    }
+
+    @Test
+    void validateGroupLength() {
+        byte[] bytes = REST_SIZE_LIST.clone();
+        bytes[2] = 4;
+        assertFailure(mapper.validate(bytes, RestSizeList.class), PATTERN_MISMATCH, 34);
+        bytes[2] = 6;
+        assertFailure(mapper.validate(bytes, RestSizeList.class), UNEXPECTED_END, 44);
+        bytes = new byte[] { 0x33, 0x11, 1, 0x22, 0, 2, 1, 2, 3, 4, -2, -1 };
+        assertFailure(mapper.validate(bytes, RestSizeList.class), GROUP_LENGTH_MISMATCH, 10);
+        assertFailure(mapper.validate(new byte[] { 3, 7, 0 }, SelfSizedGroup.class), GROUP_LENGTH_MISMATCH, 2);
+        assertFailure(mapper.validate(new byte[] { 1, 7, 0 }, SelfSizedGroup.class), GROUP_LENGTH_MISMATCH, 1);
+        assertFailure(mapper.validate(new byte[] { 1 }, SelfSizedGroup.class), GROUP_LENGTH_MISMATCH, 1);
+        assertThat(mapper.validate(new byte[] { 2, 7, 0 }, SelfSizedGroup.class).length()).isEqualTo(3);
+    }
+
+    @Test
+    void validateReusesResultWithinSlices() {
+        byte[] bytes = { -1, 0, 16, 32, 48, 0, 0, 0, 1, 0, 16, 32, 48 };
+        ByteValidation result = new ByteValidation();
+
+        assertThat(mapper.validate(bytes, 1, 8, SingleVariable.class, result)).isSameAs(result);
+        assertThat(result.ok()).isTrue();
+        assertThat(result.offset()).isEqualTo(1);
+        assertThat(result.length()).isEqualTo(8);
+
+        mapper.validate(bytes, 9, 4, SingleVariable.class, result);
+        assertFailure(result, UNEXPECTED_END, 13);
+
+        mapper.validate(ByteBuffer.wrap(bytes).position(1), SingleVariable.class, result);
+        assertThat(result.ok()).isTrue();
+        assertThat(result.length()).isEqualTo(8);
+    }
+
+    @Test
+    void validateAgreesWithReadBytes() {
+        for (byte[] bytes : List.of(REST_SIZE_LIST, new byte[] { 0x33, 0x11, 1, 0x22, 0, 1, 1, 2, 3, 4, -2, -1 },
+                new byte[] { 0x33, 0x11, 1, 0x22, 0, 2, 1, 2, 3, 4, -2, -1 }, new byte[] { 0x33, 0x11, 0, 0x22, -2 },
+                new byte[] { 0x33, 0x12 })) {
+            boolean readable;
+            try {
+                mapper.readBytes(bytes, RestSizeList.class);
+                readable = true;
+            } catch (Exception e) {
+                readable = false;
+            }
+            assertThat(mapper.validate(bytes, RestSizeList.class).ok()).as(ByteArrays.toString(bytes))
+                    .isEqualTo(readable);
+        }
+    }
+
+    @Test
+    void measureRecordsInBuffer() {
+        byte[] bytes = { 0, 2, (byte) 0xAA, (byte) 0xBB, 1, 2, 0, 0, (byte) 0xAA, (byte) 0xBB, 0, 1, (byte) 0xAA,
+                (byte) 0xBB, 9 };
+        assertThat(mapper.measure(bytes, 0, VariableParamLength.class)).isEqualTo(6);
+        assertThat(mapper.measure(bytes, 6, VariableParamLength.class)).isEqualTo(4);
+        assertThat(mapper.measure(bytes, 10, VariableParamLength.class)).isEqualTo(5);
+        assertThat(mapper.measure(bytes, 15, VariableParamLength.class)).isEqualTo(ByteMapper.INCOMPLETE);
+        assertThat(mapper.measure(REST_SIZE_LIST, 0, RestSizeList.class)).isEqualTo(REST_SIZE_LIST.length);
+    }
+
+    @Test
+    void measureSignalsIncompleteData() {
+        for (int length = 0; length < REST_SIZE_LIST.length; length++) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(length).put(REST_SIZE_LIST, 0, length).flip();
+            assertThat(mapper.measure(buffer, 0, RestSizeList.class)).as("length " + length)
+                    .isEqualTo(ByteMapper.INCOMPLETE);
+        }
+        assertThat(mapper.measure(new byte[] { 0, 11, 0 }, 0, SameSizeVariant.class)).isEqualTo(ByteMapper.INCOMPLETE);
+        assertThat(mapper.measure(new byte[] { 0, 11, 0x42, 0x13 }, 0, SameSizeVariant.class)).isEqualTo(4);
+    }
+
+    @Test
+    void measureSignalsMalformedData() {
+        assertThat(mapper.measure(new byte[] { 1, 2, 3, 4 }, 0, SameSizeVariant.class)).isEqualTo(ByteMapper.MALFORMED);
+        assertThat(mapper.measure(new byte[] { 3, 7, 0 }, 0, SelfSizedGroup.class)).isEqualTo(ByteMapper.MALFORMED);
+        assertThat(mapper.measure(new byte[] { 1 }, 0, SelfSizedGroup.class)).isEqualTo(ByteMapper.MALFORMED);
+        assertThat(mapper.measure(new byte[] { 2 }, 0, SelfSizedGroup.class)).isEqualTo(ByteMapper.INCOMPLETE);
+        assertThat(mapper.measure(new byte[] { -1, 0, 16, 32, 48, 0, 0, 0, 1 }, 1, SingleVariable.class)).isEqualTo(8);
+    }
+
+    private static void assertFailure(ByteValidation result, ByteMappingFailure failure, int offset) {
+        assertThat(result.ok()).isFalse();
+        assertThat(result.failure()).isEqualTo(failure);
+        assertThat(result.offset()).isEqualTo(offset);
+        assertThat(result.length()).isEqualTo(-1);
+    }
+}
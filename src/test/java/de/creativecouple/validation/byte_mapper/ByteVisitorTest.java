@@ -0,0 +1,117 @@
+package de.creativecouple.validation.byte_mapper;
+
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.NumberFormatsExample;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.RestSizeList;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SameSizeVariant;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SimpleVariant2;
+import de.creativecouple.validation.byte_mapper.ByteMapperTest.SingleVariable;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static de.creativecouple.validation.byte_mapper.ByteMappingFailure.PATTERN_MISMATCH;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ByteVisitorTest {
+
+    private final ByteMapper mapper = new ByteMapper();
+
+    private static class RecordingVisitor implements ByteVisitor {
+
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void onRecordStart(Class<?> type) {
+            events.add(type.getSimpleName() + " {");
+        }
+
+        @Override
+        public void onRecordEnd(Class<?> type) {
+            events.add("}");
+        }
+
+        @Override
+        public void onVariant(Class<?> variant) {
+            events.add("variant " + variant.getSimpleName());
+        }
+
+        @Override
+        public void onGroupStart() {
+            events.add("[");
+        }
+
+        @Override
+        public void onGroupEnd() {
+            events.add("]");
+        }
+
+        @Override
+        public void onInt(int fieldId, int value) {
+            events.add(fieldId + "=0x" + Integer.toHexString(value));
+        }
+
+        @Override
+        public void onLong(int fieldId, long value) {
+            events.add(fieldId + "=0x" + Long.toHexString(value) + "L");
+        }
+
+        @Override
+        public void onBytes(int fieldId, ByteBuffer buffer, int offset, int length) {
+            byte[] bytes = new byte[length];
+            buffer.get(offset, bytes);
+            events.add(fieldId + "=" + ByteArrays.toString(bytes));
+        }
+    }
+
+    @Test
+    void visitPrimitiveFields() {
+        byte[] bytes = { 0x01, 0x77, 0x02, 0x77, 0x66, 0x55, 0x44, 0x33, 0x22, 0x03, 0x77, 0x66, 0x55, 0x44, 0x33, 0x22,
+                0x77, 0x66, 0x55, 0x44, 0x33, 0x22, 0x04, 0x77, 0x66, 0x55, 0x44, 0x33, 0x22, 0x77, 0x66, 0x55, 0x44,
+                0x33, 0x22, 0x77, 0x66, 0x55, 0x44, 0x33, 0x22, 0x77, 0x66, 0x55, 0x44, 0x33, 0x22, 0x05, 0x11, 0x22,
+                0x33, 0x06 };
+        RecordingVisitor visitor = new RecordingVisitor();
+
+        ByteValidation result = mapper.visit(bytes, 0, bytes.length, NumberFormatsExample.class, visitor);
+
+        assertThat(result.ok()).isTrue();
+        assertThat(visitor.events).containsExactly("NumberFormatsExample {", "0=0x77", "1=0x7766", "2=0x5544",
+                "3=0x2233", "4=0x77665544", "5=0x33227766", "6=0x22334455", "7=0x7766554433227766L",
+                "8=0x5544332277665544L", "9=0x2233445566772233L", "10=[11 22 33]{3}", "}");
+    }
+
+    @Test
+    void visitNestedListsAndGroups() {
+        byte[] bytes = { 0x33, 0x11, 3, 0x22, 0, 1, 4, 4, 4, 4, 0, 16, 32, 48, 0, 0, 0, 3, 0, 16, 32, 48, 0, 0, 0, 2,
+                -2, -1 };
+        RecordingVisitor visitor = new RecordingVisitor();
+
+        mapper.visit(ByteBuffer.wrap(bytes), RestSizeList.class, visitor, new ByteValidation());
+
+        assertThat(visitor.events).containsExactly("RestSizeList {", "[", "0=0x4040404", "SingleVariable {", "0=0x3",
+                "}", "SingleVariable {", "0=0x2", "}", "]", "}");
+    }
+
+    @Test
+    void visitVariants() {
+        RecordingVisitor visitor = new RecordingVisitor();
+
+        ByteValidation result = mapper.visit(new byte[] { 0, 11, 0x42, 0x13 }, 0, 4, SameSizeVariant.class, visitor);
+
+        assertThat(result.type()).isEqualTo(SimpleVariant2.class);
+        assertThat(visitor.events).containsExactly("variant " + SimpleVariant2.class.getSimpleName(),
+                "SimpleVariant2 {", "0=0xbL", "}");
+    }
+
+    @Test
+    void visitReportsMalformedInput() {
+        RecordingVisitor visitor = new RecordingVisitor();
+
+        ByteValidation result = mapper.visit(new byte[] { 0, 16, 32, 49, 0, 0, 0, 1 }, 0, 8, SingleVariable.class,
+                visitor);
+
+        assertThat(result.failure()).isEqualTo(PATTERN_MISMATCH);
+        assertThat(visitor.events).containsExactly("SingleVariable {");
+    }
+}